@@ -0,0 +1,13 @@
+package com.example.demo.config;
+
+/**
+ * 起動時のデータマイグレーション。{@link DataMigrationRunner} が @Order 順に 1 つずつ実行する。
+ * 何度実行しても同じ結果になるように（処理済みの行は対象外になるように）書くこと。
+ */
+public interface DataMigration {
+
+    // 進捗表示・メトリクスに使う名前
+    String name();
+
+    void migrate() throws Exception;
+}
@@ -0,0 +1,149 @@
+package com.example.demo.config;
+
+import com.example.demo.dto.MigrationStatusResponse;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * データマイグレーションの進捗（/api/admin/migrations と readiness 判定用）。
+ * チャンク単位で進むもの（{@link MigrationEngine}）は、今回の実行で終えたチャンクの平均所要時間から残り時間を見積もる。
+ */
+@Component
+public class DataMigrationProgress {
+
+    public enum State {PENDING, RUNNING, COMPLETED, FAILED}
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<String> order = new CopyOnWriteArrayList<>();
+    private volatile boolean ready;
+    private volatile boolean failed;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    void register(List<String> names) {
+        names.forEach(this::entry);
+    }
+
+    void begin() {
+        startedAt = Instant.now();
+    }
+
+    /**
+     * 失敗したマイグレーションがあれば ready にしない（未移行のデータで API を受け付けないため）
+     */
+    void finish(boolean anyFailed) {
+        finishedAt = Instant.now();
+        failed = anyFailed;
+        ready = !anyFailed;
+    }
+
+    void started(String name) {
+        Entry entry = entry(name);
+        entry.startedAt = Instant.now();
+        entry.state = State.RUNNING;
+    }
+
+    void completed(String name) {
+        Entry entry = entry(name);
+        entry.finishedAt = Instant.now();
+        entry.state = State.COMPLETED;
+    }
+
+    void failed(String name, Exception e) {
+        Entry entry = entry(name);
+        entry.finishedAt = Instant.now();
+        entry.error = e.toString();
+        entry.state = State.FAILED;
+    }
+
+    void chunksPlanned(String name, long total, long alreadyDone) {
+        Entry entry = entry(name);
+        entry.totalChunks.set(total);
+        entry.doneChunks.set(alreadyDone);
+        entry.chunksStartedAt = System.nanoTime();
+        entry.runChunks.set(0);
+    }
+
+    void chunkDone(String name) {
+        Entry entry = entry(name);
+        entry.doneChunks.incrementAndGet();
+        entry.runChunks.incrementAndGet();
+    }
+
+    /**
+     * すべてのマイグレーションが成功して終わったか（同期実行時は起動完了時点で決まる）
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 実行を終えたが失敗したマイグレーションがある
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public MigrationStatusResponse snapshot() {
+        List<MigrationStatusResponse.Item> items = new ArrayList<>(order.size());
+        Long totalEta = 0L;
+        for (String name : order) {
+            Entry entry = entries.get(name);
+            Long eta = entry.etaSeconds();
+            if (entry.state == State.PENDING || entry.state == State.RUNNING) {
+                totalEta = eta != null && totalEta != null ? totalEta + eta : null;
+            }
+            items.add(new MigrationStatusResponse.Item(name, entry.state.name(),
+                    toString(entry.startedAt), toString(entry.finishedAt),
+                    entry.totalChunks.get(), entry.doneChunks.get(), eta, entry.error));
+        }
+        Long elapsed = startedAt == null ? null
+                : Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now()).toSeconds();
+        return new MigrationStatusResponse(ready, failed, elapsed, ready || failed ? Long.valueOf(0) : totalEta, items);
+    }
+
+    private Entry entry(String name) {
+        return entries.computeIfAbsent(name, key -> {
+            order.add(key);
+            return new Entry();
+        });
+    }
+
+    private static String toString(Instant instant) {
+        return instant == null ? null : instant.toString();
+    }
+
+    private static final class Entry {
+        volatile State state = State.PENDING;
+        volatile Instant startedAt;
+        volatile Instant finishedAt;
+        volatile String error;
+        final AtomicLong totalChunks = new AtomicLong();
+        final AtomicLong doneChunks = new AtomicLong();
+        final AtomicLong runChunks = new AtomicLong();   // 今回の実行で終えたチャンク数（再開分を除く）
+        volatile long chunksStartedAt;
+
+        // 残り時間（秒）。見積もれない場合は null
+        Long etaSeconds() {
+            if (state != State.RUNNING && state != State.PENDING) {
+                return 0L;
+            }
+            long run = runChunks.get();
+            long total = totalChunks.get();
+            if (run == 0 || total == 0) {
+                return null;
+            }
+            long remaining = Math.max(0, total - doneChunks.get());
+            double perChunk = (double) (System.nanoTime() - chunksStartedAt) / run;
+            return (long) Math.ceil(perChunk * remaining / 1_000_000_000.0);
+        }
+    }
+}
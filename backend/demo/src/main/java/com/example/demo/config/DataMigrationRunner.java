@@ -0,0 +1,116 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link DataMigration} を @Order 順に実行する。
+ * <p>
+ * migration.mode=sync（既定）では従来どおり起動処理の中で実行し、終わるまで Web サーバーは受け付けを始めない。
+ * migration.mode=background では起動完了後に別スレッドで実行し、その間は依存する API を
+ * {@link MigrationReadinessInterceptor} が 503 で断り、readiness プローブも OUT_OF_SERVICE を返す。
+ * 失敗したマイグレーションがある場合は、どちらのモードでも依存 API を断り続け、readiness は DOWN になる。
+ * JVM 起動から全マイグレーション完了までの時間を application.migrations.ready.time として記録する。
+ */
+@Component
+public class DataMigrationRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DataMigrationRunner.class);
+
+    private final List<DataMigration> migrations;
+    private final DataMigrationProgress progress;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final boolean background;
+    private final AtomicLong readyMillis = new AtomicLong();
+
+    public DataMigrationRunner(List<DataMigration> migrations,
+                               DataMigrationProgress progress,
+                               ApplicationEventPublisher eventPublisher,
+                               MeterRegistry meterRegistry,
+                               @Value("${migration.mode:sync}") String mode) {
+        this.migrations = migrations;
+        this.progress = progress;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.background = "background".equalsIgnoreCase(mode);
+
+        TimeGauge.builder("application.migrations.ready.time", readyMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("JVM 起動から全データマイグレーション完了までの時間")
+                .tag("mode", background ? "background" : "sync")
+                .register(meterRegistry);
+        progress.register(migrations.stream().map(DataMigration::name).toList());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!background) {
+            runAll();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void runInBackground() {
+        if (!background) {
+            return;
+        }
+        Thread thread = new Thread(this::runAll, "data-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void runAll() {
+        long start = System.nanoTime();
+        progress.begin();
+        boolean failed = false;
+        for (DataMigration migration : migrations) {
+            String name = migration.name();
+            progress.started(name);
+            long migrationStart = System.nanoTime();
+            String outcome = "success";
+            try {
+                migration.migrate();
+                progress.completed(name);
+            } catch (Exception e) {
+                // 失敗しても後続は続ける（各マイグレーションは次回起動時に残りから再実行される）
+                log.error("Data migration {} failed", name, e);
+                progress.failed(name, e);
+                outcome = "failure";
+                failed = true;
+            }
+            Timer.builder("application.migration.duration")
+                    .description("データマイグレーションごとの所要時間")
+                    .tag("migration", name)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(Duration.ofNanos(System.nanoTime() - migrationStart));
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        readyMillis.set(ManagementFactory.getRuntimeMXBean().getUptime());
+        progress.finish(failed);
+        if (failed) {
+            log.error("Data migrations finished with failures in {} ms; dependent APIs stay unavailable until a restart completes them",
+                    elapsed.toMillis());
+        } else {
+            log.info("Data migrations finished in {} ms ({} mode, ready {} ms after JVM start)",
+                    elapsed.toMillis(), background ? "background" : "sync", readyMillis.get());
+        }
+        eventPublisher.publishEvent(new DataMigrationsCompletedEvent(elapsed, failed));
+    }
+}
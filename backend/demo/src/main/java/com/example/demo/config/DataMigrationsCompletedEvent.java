@@ -0,0 +1,10 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+/**
+ * すべてのデータマイグレーションが終わったときに発行する（失敗したものがあっても発行する）。
+ * マイグレーション後のデータを読むメモリ上の索引・集計は ApplicationReadyEvent ではなくこれを待って読み込む。
+ */
+public record DataMigrationsCompletedEvent(Duration elapsed, boolean failed) {
+}
@@ -0,0 +1,39 @@
+package com.example.demo.config;
+
+import com.example.demo.dto.MigrationStatusResponse;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * データマイグレーション中は OUT_OF_SERVICE、失敗したものがあれば DOWN
+ * （readiness グループに含めて、すべて成功するまでトラフィックを受けないようにする）
+ */
+@Component
+public class DataMigrationsHealthIndicator implements HealthIndicator {
+
+    private final DataMigrationProgress progress;
+
+    public DataMigrationsHealthIndicator(DataMigrationProgress progress) {
+        this.progress = progress;
+    }
+
+    @Override
+    public Health health() {
+        if (progress.isFailed()) {
+            Health.Builder builder = Health.down();
+            for (MigrationStatusResponse.Item item : progress.snapshot().getMigrations()) {
+                if (item.getError() != null) {
+                    builder.withDetail(item.getName(), item.getError());
+                }
+            }
+            return builder.build();
+        }
+        Health.Builder builder = progress.isReady() ? Health.up() : Health.outOfService();
+        Long eta = progress.snapshot().getEtaSeconds();
+        if (eta != null) {
+            builder.withDetail("etaSeconds", eta);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.config;
+
+import com.example.demo.service.HistoryColumnarSnapshot;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 列指向スナップショットの起動時読み込み。読み込み中は OUT_OF_SERVICE、失敗して再試行待ちなら DOWN
+ * （/api/analysis/groupBy 以外は使えるので readiness グループには含めない）
+ */
+@Component
+public class HistoryColumnarSnapshotHealthIndicator implements HealthIndicator {
+
+    private final HistoryColumnarSnapshot snapshot;
+
+    public HistoryColumnarSnapshotHealthIndicator(HistoryColumnarSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public Health health() {
+        if (snapshot.isLoaded()) {
+            return Health.up().build();
+        }
+        String error = snapshot.getLastLoadError();
+        if (error != null) {
+            return Health.down()
+                    .withDetail("error", error)
+                    .withDetail("failedAttempts", snapshot.getFailedLoadAttempts())
+                    .build();
+        }
+        return Health.outOfService().build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.config;
+
+import com.example.demo.model.History;
+import com.example.demo.repository.HistoryBandRepository;
+import com.example.demo.repository.HistoryRepository;
+import com.example.demo.service.HistoryBodyCodec;
+import com.example.demo.service.HistoryDuplicateIndex;
+import com.example.demo.service.HistoryFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * フィンガープリント（history.shingles / sim_hash）または LSH バンドが未登録の既存 history 行を索引化する。
+ * 登録済みの行は対象外なので、再起動時は残りだけを処理する。
+ */
+@Component
+@Order(3)
+public class HistoryFingerprintBackfill implements DataMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryFingerprintBackfill.class);
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final HistoryRepository historyRepository;
+    private final HistoryBandRepository historyBandRepository;
+    private final HistoryDuplicateIndex duplicateIndex;
+    private final HistoryBodyCodec bodyCodec;
+    private final TransactionTemplate transactionTemplate;
+
+    public HistoryFingerprintBackfill(HistoryRepository historyRepository,
+                               HistoryBandRepository historyBandRepository,
+                               HistoryDuplicateIndex duplicateIndex,
+                               HistoryBodyCodec bodyCodec,
+                               TransactionTemplate transactionTemplate) {
+        this.historyRepository = historyRepository;
+        this.historyBandRepository = historyBandRepository;
+        this.duplicateIndex = duplicateIndex;
+        this.bodyCodec = bodyCodec;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public String name() {
+        return "history.fingerprint";
+    }
+
+    @Override
+    public void migrate() {
+        int indexed = 0;
+        while (true) {
+            List<Long> ids = historyBandRepository.findUnindexedHistoryIds(PageRequest.of(0, CHUNK_SIZE));
+            if (ids.isEmpty()) {
+                break;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                for (History history : historyRepository.findAllById(ids)) {
+                    HistoryFingerprint fingerprint = HistoryFingerprint.of(bodyCodec.read(history));
+                    fingerprint.applyTo(history);
+                    duplicateIndex.put(history.getId(), fingerprint.bandKeys());
+                }
+            });
+            indexed += ids.size();
+        }
+        if (indexed > 0) {
+            log.info("history fingerprints backfilled for {} rows", indexed);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.config;
+
+import com.example.demo.service.HistoryActivityRollup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * history_hourly_rollup が空なら（導入直後）既存の history から作る。
+ * history.rollup.rebuild-on-startup=true のときは毎回作り直す（集計がずれた場合の復旧用）。
+ */
+@Component
+@Order(4)
+public class HistoryRollupBackfill implements DataMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryRollupBackfill.class);
+
+    private final HistoryActivityRollup activityRollup;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean rebuildOnStartup;
+
+    public HistoryRollupBackfill(HistoryActivityRollup activityRollup,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${history.rollup.rebuild-on-startup:false}") boolean rebuildOnStartup) {
+        this.activityRollup = activityRollup;
+        this.transactionTemplate = transactionTemplate;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @Override
+    public String name() {
+        return "history.hourly_rollup";
+    }
+
+    @Override
+    public void migrate() {
+        if (!rebuildOnStartup && !activityRollup.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Integer rows = transactionTemplate.execute(status -> activityRollup.rebuild());
+        log.info("History hourly rollup rebuilt: {} rows in {} ms", rows, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -1,176 +1,133 @@
 package com.example.demo.config;
 
+import com.example.demo.service.TimestampParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.ApplicationArguments;
-import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeFormatterBuilder;
-import java.time.temporal.ChronoField;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 /**
  * 既存 DB で文字列として保存されている history.timestamp を、アプリ起動時に DATETIME(6) へ正規化する。
+ * <p>
+ * 値の変換は {@link MigrationEngine} で主キー範囲ごとに並列・バッチ更新し、進捗は migration_checkpoint に残すため、
+ * 途中で停止しても次回起動時は未完了の範囲から再開する。全件変換できた場合にのみ列型を変更する。
  */
 @Component
-public class HistoryTimestampMigration implements ApplicationRunner {
+@Order(1)
+public class HistoryTimestampMigration implements DataMigration {
 
     private static final Logger log = LoggerFactory.getLogger(HistoryTimestampMigration.class);
 
+    private static final String MIGRATION = "history.timestamp";
+
     private final JdbcTemplate jdbcTemplate;
+    private final MigrationEngine migrationEngine;
 
-    public HistoryTimestampMigration(JdbcTemplate jdbcTemplate) {
+    public HistoryTimestampMigration(JdbcTemplate jdbcTemplate, MigrationEngine migrationEngine) {
         this.jdbcTemplate = jdbcTemplate;
+        this.migrationEngine = migrationEngine;
     }
 
     @Override
-    public void run(ApplicationArguments args) {
-        try {
-            ColumnMeta meta = jdbcTemplate.query(
-                    "SELECT DATA_TYPE, COLUMN_TYPE, IS_NULLABLE FROM information_schema.COLUMNS " +
-                            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'history' AND COLUMN_NAME = 'timestamp'",
-                    rs -> rs.next() ? new ColumnMeta(
-                            rs.getString("DATA_TYPE"),
-                            rs.getString("COLUMN_TYPE"),
-                            rs.getString("IS_NULLABLE")) : null
-            );
-
-            if (meta == null) {
-                log.warn("history.timestamp が見つかりません。マイグレーションをスキップします。");
-                return;
-            }
-
-            if ("datetime".equalsIgnoreCase(meta.dataType())) {
-                return; // 既に DATETIME のため何もしない
-            }
-
-            log.info("Normalizing history.timestamp textual data (current type: {})", meta.columnType());
-
-            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
-                    "SELECT id, timestamp FROM history WHERE timestamp IS NOT NULL"
-            );
-
-            int converted = 0;
-            List<Long> failedIds = new ArrayList<>();
-
-            for (Map<String, Object> row : rows) {
-                Object idObj = row.get("id");
-                Object tsObj = row.get("timestamp");
-
-                if (!(idObj instanceof Number)) {
-                    continue;
-                }
-                long id = ((Number) idObj).longValue();
-
-                if (tsObj == null) {
-                    continue;
-                }
+    public String name() {
+        return MIGRATION;
+    }
 
-                if (tsObj instanceof Timestamp) {
-                    // 既に Timestamp の場合は変換不要
-                    converted++;
-                    continue;
-                }
+    @Override
+    public void migrate() throws InterruptedException {
+        ColumnMeta meta = jdbcTemplate.query(
+                "SELECT DATA_TYPE, COLUMN_TYPE, IS_NULLABLE FROM information_schema.COLUMNS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'history' AND COLUMN_NAME = 'timestamp'",
+                rs -> rs.next() ? new ColumnMeta(
+                        rs.getString("DATA_TYPE"),
+                        rs.getString("COLUMN_TYPE"),
+                        rs.getString("IS_NULLABLE")) : null
+        );
+
+        if (meta == null) {
+            log.warn("history.timestamp が見つかりません。マイグレーションをスキップします。");
+            return;
+        }
 
-                String raw = tsObj.toString().trim();
-                if (raw.isEmpty()) {
-                    continue;
-                }
+        if ("datetime".equalsIgnoreCase(meta.dataType())) {
+            return; // 既に DATETIME のため何もしない
+        }
 
-                Timestamp parsed = convertToTimestamp(raw);
-                if (parsed == null) {
-                    failedIds.add(id);
-                    continue;
-                }
+        log.info("Normalizing history.timestamp textual data (current type: {})", meta.columnType());
 
-                jdbcTemplate.update("UPDATE history SET timestamp = ? WHERE id = ?", parsed, id);
-                converted++;
-            }
+        Map<String, Object> bounds = jdbcTemplate.queryForMap("SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM history");
+        if (bounds.get("min_id") instanceof Number minId && bounds.get("max_id") instanceof Number maxId) {
+            MigrationEngine.Result result = migrationEngine.run(MIGRATION, minId.longValue(), maxId.longValue(), this::normalizeRange);
 
-            log.info("history.timestamp normalized {}/{} rows", converted, rows.size());
+            log.info("history.timestamp normalized {} rows in {} chunks ({} already done)",
+                    result.processed(), result.chunks(), result.skippedChunks());
 
-            if (!failedIds.isEmpty()) {
-                log.error("history.timestamp 正規化に失敗したレコードID: {}", failedIds.size() > 10 ? failedIds.subList(0, 10) : failedIds);
-                return;
+            if (result.failed() > 0) {
+                // 列型は変えずに終える（失敗した範囲は次回起動時に再処理する）
+                throw new IllegalStateException("history.timestamp 正規化に失敗したレコード " + result.failed()
+                        + " 件（例: " + result.sampleFailedIds() + "）");
             }
-
-            String nullClause = "YES".equalsIgnoreCase(meta.isNullable()) ? " NULL" : " NOT NULL";
-
-            log.info("history.timestamp 列型を DATETIME(6) に変更します。");
-            jdbcTemplate.execute("ALTER TABLE history MODIFY COLUMN timestamp DATETIME(6)" + nullClause);
-            log.info("history.timestamp migration finished.");
-        } catch (Exception e) {
-            log.error("history.timestamp migration failed", e);
         }
-    }
-
-    private Timestamp convertToTimestamp(String raw) {
-        try {
-            if (raw.endsWith("Z") || raw.matches(".*[+-][0-9:]{3,6}$")) {
-                OffsetDateTime offset = OffsetDateTime.parse(raw, ISO8601_WITH_OPTIONAL_FRACTION);
-                return Timestamp.valueOf(offset.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime());
-            }
 
-            if (raw.contains("T")) {
-                LocalDateTime local = LocalDateTime.parse(raw, ISO8601_LOCAL);
-                return Timestamp.valueOf(local);
-            }
+        String nullClause = "YES".equalsIgnoreCase(meta.isNullable()) ? " NULL" : " NOT NULL";
 
-            if (raw.matches("^[0-9]{4}-[0-9]{2}-[0-9]{2} [0-9]{2}:[0-9]{2}:[0-9]{2}\\.[0-9]+$")) {
-                LocalDateTime local = LocalDateTime.parse(raw, SPACE_SEPARATED_MILLIS);
-                return Timestamp.valueOf(local);
-            }
+        log.info("history.timestamp 列型を DATETIME(6) に変更します。");
+        jdbcTemplate.execute("ALTER TABLE history MODIFY COLUMN timestamp DATETIME(6)" + nullClause);
+        log.info("history.timestamp migration finished.");
+    }
 
-            if (raw.matches("^[0-9]{4}-[0-9]{2}-[0-9]{2} [0-9]{2}:[0-9]{2}:[0-9]{2}$")) {
-                LocalDateTime local = LocalDateTime.parse(raw, SPACE_SEPARATED_SECONDS);
-                return Timestamp.valueOf(local);
-            }
-        } catch (Exception ignore) {
-            // fall through to return null
+    /**
+     * 主キー [from, to) の文字列 timestamp を変換し、まとめてバッチ更新する
+     */
+    private MigrationEngine.ChunkResult normalizeRange(long from, long to) {
+        List<Object[]> updates = new ArrayList<>();
+        List<Long> failedIds = new ArrayList<>();
+        int[] processed = new int[1];
+        jdbcTemplate.query("SELECT id, timestamp FROM history WHERE id >= ? AND id < ? AND timestamp IS NOT NULL",
+                rs -> {
+                    long id = rs.getLong("id");
+                    Object tsObj = rs.getObject("timestamp");
+                    if (tsObj == null) {
+                        return;
+                    }
+                    processed[0]++;
+
+                    if (tsObj instanceof Timestamp) {
+                        // 既に Timestamp の場合は変換不要
+                        return;
+                    }
+
+                    String raw = tsObj.toString().trim();
+                    if (raw.isEmpty()) {
+                        return;
+                    }
+
+                    Timestamp parsed = convertToTimestamp(raw);
+                    if (parsed == null) {
+                        failedIds.add(id);
+                        return;
+                    }
+                    updates.add(new Object[]{parsed, id});
+                },
+                from, to);
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE history SET timestamp = ? WHERE id = ?", updates);
         }
-        return null;
+        return new MigrationEngine.ChunkResult(processed[0], failedIds);
     }
 
-    private static final DateTimeFormatter ISO8601_WITH_OPTIONAL_FRACTION = new DateTimeFormatterBuilder()
-            .append(DateTimeFormatter.ISO_LOCAL_DATE)
-            .appendLiteral('T')
-            .appendValue(ChronoField.HOUR_OF_DAY, 2)
-            .appendLiteral(':')
-            .appendValue(ChronoField.MINUTE_OF_HOUR, 2)
-            .appendLiteral(':')
-            .appendValue(ChronoField.SECOND_OF_MINUTE, 2)
-            .appendFraction(ChronoField.MICRO_OF_SECOND, 0, 6, true)
-            .appendOffsetId()
-            .toFormatter();
-
-    private static final DateTimeFormatter ISO8601_LOCAL = new DateTimeFormatterBuilder()
-            .append(DateTimeFormatter.ISO_LOCAL_DATE)
-            .appendLiteral('T')
-            .appendValue(ChronoField.HOUR_OF_DAY, 2)
-            .appendLiteral(':')
-            .appendValue(ChronoField.MINUTE_OF_HOUR, 2)
-            .appendLiteral(':')
-            .appendValue(ChronoField.SECOND_OF_MINUTE, 2)
-            .appendFraction(ChronoField.MICRO_OF_SECOND, 0, 6, true)
-            .toFormatter();
-
-    private static final DateTimeFormatter SPACE_SEPARATED_MILLIS = new DateTimeFormatterBuilder()
-            .appendPattern("yyyy-MM-dd HH:mm:ss")
-            .appendFraction(ChronoField.MICRO_OF_SECOND, 1, 6, true)
-            .toFormatter();
-
-    private static final DateTimeFormatter SPACE_SEPARATED_SECONDS = new DateTimeFormatterBuilder()
-            .appendPattern("yyyy-MM-dd HH:mm:ss")
-            .toFormatter();
+    private static Timestamp convertToTimestamp(String raw) {
+        LocalDateTime local = TimestampParser.parse(raw);
+        return local != null ? Timestamp.valueOf(local) : null;
+    }
 
     private record ColumnMeta(String dataType, String columnType, String isNullable) {
     }
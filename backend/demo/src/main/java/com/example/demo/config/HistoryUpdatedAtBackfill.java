@@ -0,0 +1,49 @@
+package com.example.demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * updated_at 列の追加前からある history 行に更新時刻を入れる（差分同期の対象にするため）。
+ * 発生時刻ではなく現在時刻を入れるので、発行済みの同期トークンより後ろに並び、取りこぼされない。
+ */
+@Component
+@Order(2)
+public class HistoryUpdatedAtBackfill implements DataMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryUpdatedAtBackfill.class);
+
+    private static final int CHUNK_SIZE = 5000;
+
+    private static final String UPDATE_CHUNK = "UPDATE history SET updated_at = ? WHERE updated_at IS NULL LIMIT " + CHUNK_SIZE;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HistoryUpdatedAtBackfill(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public String name() {
+        return "history.updated_at";
+    }
+
+    @Override
+    public void migrate() {
+        long updated = 0;
+        int count;
+        do {
+            count = jdbcTemplate.update(UPDATE_CHUNK, Timestamp.valueOf(LocalDateTime.now()));
+            updated += count;
+        } while (count == CHUNK_SIZE);
+        if (updated > 0) {
+            log.info("Backfilled updated_at for {} history rows", updated);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.demo.config;
+
+import com.example.demo.model.MigrationCheckpoint;
+import com.example.demo.repository.MigrationCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 主キー範囲ごとのチャンクでデータマイグレーションを実行する。
+ * <p>
+ * [minId, maxId] を migration.chunk-size ずつに区切り、migration.workers 個のスレッドで並列に処理する。
+ * 各チャンクは 1 トランザクションで「更新 + migration_checkpoint への記録」を行うので、
+ * 再起動時は失敗のないチャンク（チャンク幅を変えた場合も、完了範囲で覆われている部分）を読み飛ばす。
+ */
+@Component
+public class MigrationEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(MigrationEngine.class);
+
+    private final MigrationCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DataMigrationProgress progress;
+    private final int chunkSize;
+    private final int workers;
+
+    public MigrationEngine(MigrationCheckpointRepository checkpointRepository,
+                           TransactionTemplate transactionTemplate,
+                           DataMigrationProgress progress,
+                           @Value("${migration.chunk-size:5000}") int chunkSize,
+                           @Value("${migration.workers:4}") int workers) {
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.progress = progress;
+        this.chunkSize = chunkSize;
+        this.workers = workers;
+    }
+
+    /**
+     * 1 チャンク（主キー [from, to)）の処理。呼び出し元のトランザクション内で実行される。
+     */
+    @FunctionalInterface
+    public interface ChunkMigrator {
+        ChunkResult migrate(long from, long to);
+    }
+
+    public record ChunkResult(int processed, List<Long> failedIds) {
+    }
+
+    public record Result(int chunks, int skippedChunks, long processed, long failed, List<Long> sampleFailedIds) {
+    }
+
+    public Result run(String migration, long minId, long maxId, ChunkMigrator migrator) throws InterruptedException {
+        List<long[]> completed = new ArrayList<>();
+        for (MigrationCheckpoint checkpoint : checkpointRepository.findCompleted(migration)) {
+            completed.add(new long[]{checkpoint.getRangeStart(), checkpoint.getRangeEnd()});
+        }
+
+        List<long[]> pending = new ArrayList<>();
+        int skipped = 0;
+        for (long start = minId; start <= maxId; start += chunkSize) {
+            long end = Math.min(start + chunkSize, maxId + 1);
+            if (isCovered(completed, start, end)) {
+                skipped++;
+            } else {
+                pending.add(new long[]{start, end});
+            }
+        }
+        progress.chunksPlanned(migration, pending.size() + skipped, skipped);
+        if (skipped > 0) {
+            log.info("Migration {} resuming: {} chunks done, {} remaining", migration, skipped, pending.size());
+        }
+
+        AtomicLong processed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        List<Long> sampleFailedIds = java.util.Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "migration-" + migration + "-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(pending.size());
+            for (long[] range : pending) {
+                futures.add(executor.submit(() -> {
+                    ChunkResult result = migrateChunk(migration, range[0], range[1], migrator);
+                    progress.chunkDone(migration);
+                    processed.addAndGet(result.processed());
+                    failed.addAndGet(result.failedIds().size());
+                    for (Long id : result.failedIds()) {
+                        if (sampleFailedIds.size() < 10) {
+                            sampleFailedIds.add(id);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Migration " + migration + " failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Result(pending.size() + skipped, skipped, processed.get(), failed.get(), List.copyOf(sampleFailedIds));
+    }
+
+    private ChunkResult migrateChunk(String migration, long from, long to, ChunkMigrator migrator) {
+        return transactionTemplate.execute(status -> {
+            ChunkResult result = migrator.migrate(from, to);
+            checkpointRepository.deleteRange(migration, from);
+            checkpointRepository.save(new MigrationCheckpoint(null, migration, from, to,
+                    result.processed(), result.failedIds().size(), LocalDateTime.now()));
+            return result;
+        });
+    }
+
+    // 完了範囲（開始位置順）で [start, end) が隙間なく覆われているか
+    static boolean isCovered(List<long[]> completed, long start, long end) {
+        long position = start;
+        for (long[] range : completed) {
+            if (range[0] > position) {
+                if (range[0] >= end) {
+                    break;
+                }
+                return false;
+            }
+            position = Math.max(position, range[1]);
+            if (position >= end) {
+                return true;
+            }
+        }
+        return position >= end;
+    }
+}
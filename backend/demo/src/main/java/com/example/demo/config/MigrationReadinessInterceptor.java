@@ -0,0 +1,41 @@
+package com.example.demo.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * データマイグレーションが終わるまで（失敗した場合は再起動で完了するまで）、マイグレーション後のデータに依存する API を 503 で断る
+ */
+public class MigrationReadinessInterceptor implements HandlerInterceptor {
+
+    private final DataMigrationProgress progress;
+
+    public MigrationReadinessInterceptor(DataMigrationProgress progress) {
+        this.progress = progress;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (progress.isReady()) {
+            return true;
+        }
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        if (progress.isFailed()) {
+            // 待っても回復しないので Retry-After は付けない
+            response.getWriter().write("データ移行に失敗したため利用できません");
+            return false;
+        }
+        Long eta = progress.snapshot().getEtaSeconds();
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(eta != null ? Math.max(1, eta) : 30));
+        response.getWriter().write("データ移行中のため一時的に利用できません");
+        return false;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class MigrationWebConfig implements WebMvcConfigurer {
+
+    private final DataMigrationProgress progress;
+    private final List<String> gatedPaths;
+
+    public MigrationWebConfig(DataMigrationProgress progress,
+                              @Value("${migration.gated-paths:/api/history/**,/api/analysis/**,/api/emails/save}") List<String> gatedPaths) {
+        this.progress = progress;
+        this.gatedPaths = gatedPaths;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new MigrationReadinessInterceptor(progress))
+                .addPathPatterns(gatedPaths);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.config;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * 外部連携（Slack / Google）向けの HTTP クライアント。
+ * <p>
+ * REST 呼び出しは 1 つのコネクションプール（outbound.http.*）を共有し、接続を keep-alive で使い回す。
+ * 接続タイムアウトは接続先ホストごと、応答タイムアウトとプールの空き待ちは連携ごとの RestTemplate に設定する。
+ * プールの状態は httpcomponents.httpclient.pool.*{httpclient=outbound} で参照できる。
+ * Google API クライアントは独自のトランスポートを使うため、共有の NetHttpTransport を 1 つだけ作る
+ * （タイムアウトは {@link com.example.demo.service.GoogleApiClients} が設定する）。
+ */
+@Configuration
+public class OutboundHttpConfig {
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager outboundConnectionManager(
+            MeterRegistry meterRegistry,
+            @Value("${outbound.http.max-total:100}") int maxTotal,
+            @Value("${outbound.http.max-per-route:20}") int maxPerRoute,
+            @Value("${outbound.http.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${outbound.slack.connect-timeout:3s}") Duration slackConnectTimeout,
+            @Value("${slack.api.base-url:https://slack.com/api}") String slackBaseUrl) {
+        PoolingHttpClientConnectionManager manager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .build();
+
+        String slackHost = URI.create(slackBaseUrl).getHost();
+        ConnectionConfig defaultConfig = connectionConfig(connectTimeout);
+        ConnectionConfig slackConfig = connectionConfig(slackConnectTimeout);
+        manager.setConnectionConfigResolver(route ->
+                route.getTargetHost().getHostName().equalsIgnoreCase(slackHost) ? slackConfig : defaultConfig);
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(manager, "outbound").bindTo(meterRegistry);
+        return manager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient outboundHttpClient(PoolingHttpClientConnectionManager outboundConnectionManager,
+                                                  @Value("${outbound.http.keep-alive:30s}") Duration keepAlive,
+                                                  @Value("${outbound.http.evict-idle:60s}") Duration evictIdle) {
+        return HttpClients.custom()
+                .setConnectionManager(outboundConnectionManager)
+                // 応答に Keep-Alive ヘッダーがなければこの時間だけ接続を保持する
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionKeepAlive(TimeValue.of(keepAlive))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(evictIdle))
+                .build();
+    }
+
+    @Bean
+    public RestTemplate slackRestTemplate(CloseableHttpClient outboundHttpClient,
+                                          @Value("${outbound.slack.read-timeout:10s}") Duration readTimeout,
+                                          @Value("${outbound.slack.pool-timeout:2s}") Duration poolTimeout) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(outboundHttpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        requestFactory.setConnectionRequestTimeout(poolTimeout);
+        return new RestTemplate(requestFactory);
+    }
+
+    // HttpURLConnection ベースなので、接続の再利用は JDK の keep-alive キャッシュ（http.maxConnections）に従う
+    @Bean
+    public NetHttpTransport googleHttpTransport() {
+        return new NetHttpTransport();
+    }
+
+    private static ConnectionConfig connectionConfig(Duration connectTimeout) {
+        return ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(connectTimeout))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build();
+    }
+}
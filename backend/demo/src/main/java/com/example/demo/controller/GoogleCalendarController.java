@@ -2,11 +2,8 @@ package com.example.demo.controller;
 
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
-import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeTokenRequest;
+import com.example.demo.service.GoogleApiClients;
 import com.google.api.client.googleapis.auth.oauth2.GoogleTokenResponse;
-import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.calendar.Calendar;
 import com.google.api.services.calendar.model.Event;
 import com.google.api.services.calendar.model.EventDateTime;
@@ -28,12 +25,12 @@ public class GoogleCalendarController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private GoogleApiClients googleApiClients;
+
     @Value("${google.client.id}")
     private String clientId;
 
-    @Value("${google.client.secret}")
-    private String clientSecret;
-
     @Value("${google.redirect.uri}")
     private String redirectUri;
 
@@ -56,14 +53,7 @@ public class GoogleCalendarController {
     // コールバック
     @GetMapping("/oauth/callback")
     public String oauthCallback(@RequestParam String code, @RequestParam String state) throws IOException {
-        GoogleTokenResponse tokenResponse = new GoogleAuthorizationCodeTokenRequest(
-                new NetHttpTransport(),
-                JacksonFactory.getDefaultInstance(),
-                clientId,
-                clientSecret,
-                code,
-                redirectUri
-        ).execute();
+        GoogleTokenResponse tokenResponse = googleApiClients.exchangeCode(code, redirectUri);
 
         String refreshToken = tokenResponse.getRefreshToken();
 
@@ -80,16 +70,7 @@ public class GoogleCalendarController {
     public List<Event> getEvents(@RequestParam String email) throws IOException {
         User user = userRepository.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
 
-        GoogleCredential credential = new GoogleCredential.Builder()
-                .setClientSecrets(clientId, clientSecret)
-                .setTransport(new NetHttpTransport())
-                .setJsonFactory(JacksonFactory.getDefaultInstance())
-                .build()
-                .setRefreshToken(user.getRefreshToken());
-
-        Calendar service = new Calendar.Builder(new NetHttpTransport(), JacksonFactory.getDefaultInstance(), credential)
-                .setApplicationName("My Calendar App")
-                .build();
+        Calendar service = googleApiClients.calendar(user.getRefreshToken(), "My Calendar App");
 
         Events events = service.events().list("primary")
                 .setMaxResults(10)
@@ -108,16 +89,7 @@ public class GoogleCalendarController {
                               @RequestParam String endDateTime) throws IOException {
         User user = userRepository.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
 
-        GoogleCredential credential = new GoogleCredential.Builder()
-                .setClientSecrets(clientId, clientSecret)
-                .setTransport(new NetHttpTransport())
-                .setJsonFactory(JacksonFactory.getDefaultInstance())
-                .build()
-                .setRefreshToken(user.getRefreshToken());
-
-        Calendar service = new Calendar.Builder(new NetHttpTransport(), JacksonFactory.getDefaultInstance(), credential)
-                .setApplicationName("My Calendar App")
-                .build();
+        Calendar service = googleApiClients.calendar(user.getRefreshToken(), "My Calendar App");
 
         Event event = new Event()
                 .setSummary(summary)
@@ -1,11 +1,21 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.DistinctUsersResponse;
+import com.example.demo.dto.LiveActivityResponse;
+import com.example.demo.dto.TopSubjectResponse;
 import com.example.demo.service.HistoryAnalysisService;
+import com.example.demo.service.HistoryColumnarSnapshot;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -18,15 +28,55 @@ public class HistoryAnalysisController {
         this.analysisService = analysisService;
     }
 
-    // 職種ごとの action 件数
+    // 職種ごとの action 件数（from/to は ISO 形式の日時、from 以上 to 未満）
     @GetMapping("/actionsByRole")
-    public Map<String, Long> getActionsByRole(@RequestParam String role) {
-        return analysisService.countActionsByRole(role);
+    public Map<String, Long> getActionsByRole(@RequestParam String role,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return analysisService.countActionsByRole(role, from, to);
     }
 
     // 職種ごとの時間帯別 action 件数
     @GetMapping("/actionsByHour")
-    public Map<Integer, Long> getActionsByHour(@RequestParam String role) {
-        return analysisService.countActionsByHour(role);
+    public Map<Integer, Long> getActionsByHour(@RequestParam String role,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return analysisService.countActionsByHour(role, from, to);
+    }
+
+    // 直近の保存件数（1 分単位、minutes は history.live.retention-minutes まで）。ライブ表示用にメモリ上のカウンタから返す
+    @GetMapping("/live")
+    public LiveActivityResponse getLiveActivity(@RequestParam String role,
+                                                @RequestParam(defaultValue = "60") int minutes) {
+        return analysisService.getLiveActivity(role, minutes);
+    }
+
+    // 期間内の異なりユーザー数（近似。from/to は日付、省略時は直近 30 日）
+    @GetMapping("/distinctUsers")
+    public DistinctUsersResponse getDistinctUsers(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return analysisService.estimateDistinctUsers(from, to);
+    }
+
+    // 職種ごとの頻出件名 上位 k 件（近似）
+    @GetMapping("/topSubjects")
+    public List<TopSubjectResponse> getTopSubjects(@RequestParam String role,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                   @RequestParam(defaultValue = "10") int k) {
+        return analysisService.estimateTopSubjects(role, from, to, k);
+    }
+
+    // 任意の軸での件数（by = HOUR / WEEKDAY / CREATED_BY / SUBJECT / DUPLICATE）。メモリ上の列スナップショットから集計
+    @GetMapping("/groupBy")
+    public Map<String, Long> groupBy(@RequestParam HistoryColumnarSnapshot.Dimension by,
+                                     @RequestParam(required = false) String role,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (!analysisService.isGroupByReady()) {
+            // 起動時の読み込みが終わるまでは一部の行だけの件数になるため返さない
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "History snapshot is still loading");
+        }
+        return analysisService.groupBy(by, role, from, to);
     }
 }
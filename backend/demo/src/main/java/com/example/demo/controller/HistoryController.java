@@ -1,16 +1,30 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.BulkImportResponse;
+import com.example.demo.dto.HistoryChangesResponse;
+import com.example.demo.dto.HistoryPageResponse;
+import com.example.demo.dto.HistorySearchHit;
+import com.example.demo.dto.HistorySummaryPageResponse;
 import com.example.demo.dto.SaveHistoryRequest;
 import com.example.demo.dto.SaveHistoryResponse;
 import com.example.demo.dto.UpdateHistoryRequest;
+import com.example.demo.service.HistoryImportService;
 import com.example.demo.service.HistoryService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 
 @RestController
 @RequestMapping("/api/history")
@@ -18,6 +32,7 @@ import static org.springframework.http.HttpStatus.CREATED;
 public class HistoryController {
 
     private final HistoryService historyService;
+    private final HistoryImportService historyImportService;
 
     // 全履歴取得
     @GetMapping("/all")
@@ -25,6 +40,55 @@ public class HistoryController {
         return historyService.getAllHistory();
     }
 
+    // 新しい順のページ取得（nextCursor を cursor に渡すと続きを取得）
+    @GetMapping
+    public HistoryPageResponse getHistoryPage(@RequestParam(required = false) String cursor,
+                                              @RequestParam(defaultValue = "50") int limit) {
+        return historyService.getHistoryPage(cursor, limit);
+    }
+
+    // 本文なしの一覧（新しい順、カーソルは getHistoryPage と共通）
+    @GetMapping("/summaries")
+    public HistorySummaryPageResponse getHistorySummaries(@RequestParam(required = false) String cursor,
+                                                          @RequestParam(defaultValue = "50") int limit) {
+        return historyService.getHistorySummaries(cursor, limit);
+    }
+
+    // 差分同期（前回の nextToken を since に渡すと、その後の追加・更新・削除だけを取得）
+    @GetMapping("/changes")
+    public HistoryChangesResponse getChanges(@RequestParam(required = false) String since,
+                                             @RequestParam(defaultValue = "500") int limit) {
+        return historyService.getChanges(since, limit);
+    }
+
+    // 件名・本文の全文検索（関連度順）
+    @GetMapping("/search")
+    public List<HistorySearchHit> searchHistory(@RequestParam String q,
+                                                @RequestParam(defaultValue = "20") int limit) {
+        return historyService.searchHistory(q, limit);
+    }
+
+    // 全履歴を NDJSON でストリーミング出力（gzip=true で gzip 圧縮）
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(@RequestParam(defaultValue = "false") boolean gzip) {
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                historyService.exportHistory(compressed);
+                compressed.finish();
+            } else {
+                historyService.exportHistory(out);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"history.ndjson\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     // 履歴追加（重複チェックあり）
     @PostMapping("/add")
     public ResponseEntity<SaveHistoryResponse> addHistory(@RequestBody SaveHistoryRequest request) {
@@ -32,6 +96,29 @@ public class HistoryController {
         return ResponseEntity.status(CREATED).body(response);
     }
 
+    // 1 件取得（非同期モードでは dedupStatus で重複判定の完了を確認できる）
+    @GetMapping("/{historyId}")
+    public SaveHistoryResponse getHistory(@PathVariable Long historyId) {
+        return historyService.getHistory(historyId);
+    }
+
+    // 本文のみ取得（一覧で選択したメールを開くとき）
+    @GetMapping(value = "/{historyId}/body", produces = "text/plain;charset=UTF-8")
+    public String getHistoryBody(@PathVariable Long historyId) {
+        return historyService.getHistoryBody(historyId);
+    }
+
+    // 一括取り込み（JSON 配列または NDJSON を逐次読み込み）。冪等ではない: 失敗しても保存済みの件数を本文で返すので、
+    // 再送は imported 件目から行う（先頭から送り直すと重複しない行も二重に登録される）
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkImportResponse> bulkImport(InputStream body) throws IOException {
+        BulkImportResponse response = historyImportService.importHistory(body);
+        if (response.getError() == null) {
+            return ResponseEntity.ok(response);
+        }
+        return ResponseEntity.status(response.getFailedRecord() != null ? BAD_REQUEST : INTERNAL_SERVER_ERROR).body(response);
+    }
+
     @PutMapping("/{historyId}")
     public SaveHistoryResponse updateHistory(@PathVariable Long historyId,
                                              @RequestBody UpdateHistoryRequest request) {
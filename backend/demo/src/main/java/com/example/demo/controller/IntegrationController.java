@@ -6,11 +6,14 @@ import com.example.demo.dto.OutlookIntegrationRequest;
 import com.example.demo.dto.OutlookIntegrationResponse;
 import com.example.demo.dto.SlackIntegrationRequest;
 import com.example.demo.dto.SlackIntegrationResponse;
+import com.example.demo.dto.SlackMessageStatusResponse;
 import com.example.demo.service.GoogleCalendarService;
 import com.example.demo.service.OutlookService;
 import com.example.demo.service.SlackService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -30,6 +33,12 @@ public class IntegrationController {
         return slackService.sendMessage(request);
     }
 
+    // 送信状態（送信は非同期なので、ts は SENT になってから入る）
+    @GetMapping("/slack/{messageId}")
+    public SlackMessageStatusResponse getSlackStatus(@PathVariable String messageId) {
+        return slackService.getMessageStatus(messageId);
+    }
+
     @PostMapping("/outlook")
     public OutlookIntegrationResponse sendOutlook(@RequestBody OutlookIntegrationRequest request) {
         return outlookService.sendMail(request);
@@ -0,0 +1,24 @@
+package com.example.demo.controller;
+
+import com.example.demo.config.DataMigrationProgress;
+import com.example.demo.dto.MigrationStatusResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin")
+public class MigrationAdminController {
+
+    private final DataMigrationProgress progress;
+
+    public MigrationAdminController(DataMigrationProgress progress) {
+        this.progress = progress;
+    }
+
+    // 起動時データマイグレーションの進捗と残り時間の見積もり
+    @GetMapping("/migrations")
+    public MigrationStatusResponse getMigrations() {
+        return progress.snapshot();
+    }
+}
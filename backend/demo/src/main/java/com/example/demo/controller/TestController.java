@@ -1,6 +1,5 @@
 package com.example.demo.controller;
 
-import com.example.demo.dto.SlackIntegrationRequest;
 import com.example.demo.dto.SlackIntegrationResponse;
 import com.example.demo.service.SlackService;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,13 +14,10 @@ public class TestController {
         this.slackService = slackService;
     }
 
+    // 送信待ち（slack_outbox）を通さずに同期で送り、ok / error: 理由 を返す
     @GetMapping("/slack-test")
     public String sendTestMessage() {
-        SlackIntegrationRequest request = new SlackIntegrationRequest();
-        request.setMessage(":white_check_mark: Hello from Spring Boot!");
-        request.setChannelId("general");
-
-        SlackIntegrationResponse response = slackService.sendMessage(request);
-        return response.getStatus();
+        SlackIntegrationResponse response = slackService.sendMessageNow("general", ":white_check_mark: Hello from Spring Boot!");
+        return "ok".equals(response.getStatus()) ? "ok" : "error: " + response.getErrorMessage();
     }
 }
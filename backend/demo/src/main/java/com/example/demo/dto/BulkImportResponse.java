@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportResponse {
+
+    private long imported;
+
+    private long duplicates;
+
+    private long elapsedMillis;
+
+    private double rowsPerSecond;
+
+    // 途中で止まった理由（最後まで取り込めたときは null）。先頭から imported 件は保存済み
+    private String error;
+
+    // 入力の誤りで止まった行（0 始まり）。書き込みの失敗で止まったときは null
+    private Long failedRecord;
+}
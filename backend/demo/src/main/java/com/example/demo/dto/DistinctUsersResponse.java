@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistinctUsersResponse {
+
+    private String from;
+
+    private String to;
+
+    // 異なりユーザー数の推定値（誤差 約 1.6%）
+    private long estimate;
+}
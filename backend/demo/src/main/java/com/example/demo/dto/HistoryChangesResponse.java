@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoryChangesResponse {
+
+    // 追加・更新された履歴（更新順）
+    private List<SaveHistoryResponse> changed;
+
+    // 削除された履歴 ID
+    private List<String> deletedIds;
+
+    // 次回の since に渡すトークン（変更がなくても常に返す）
+    private String nextToken;
+
+    // true の場合は nextToken ですぐに続きを取得する
+    private boolean hasMore;
+}
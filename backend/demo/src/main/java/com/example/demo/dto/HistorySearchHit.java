@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorySearchHit {
+
+    private String historyId;
+
+    private double score;
+
+    private String subject;
+
+    private String createdBy;
+
+    private String timestamp;
+}
@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorySummaryPageResponse {
+
+    private List<HistorySummaryResponse> items;
+
+    // 次ページ取得用のカーソル（最終ページでは null）
+    private String nextCursor;
+}
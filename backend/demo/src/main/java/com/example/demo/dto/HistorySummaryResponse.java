@@ -0,0 +1,28 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+/**
+ * 一覧表示用の履歴（本文なし。本文は /api/history/{historyId}/body で取得）
+ */
+@Data
+public class HistorySummaryResponse {
+
+    private String historyId;
+
+    private boolean duplicate;
+
+    private Double similarityScore;
+
+    private String duplicateOfId;
+
+    private String dedupStatus;
+
+    private String subject;
+
+    private String user;
+
+    private String timestamp;
+
+    private String createdBy;
+}
@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveActivityResponse {
+
+    private String role;
+
+    // 集計した分数（保持期間を超える指定は切り詰める）
+    private int minutes;
+
+    private long total;
+
+    // 1 分ごとの件数（古い順、最後が現在の分）
+    private List<Long> perMinute;
+}
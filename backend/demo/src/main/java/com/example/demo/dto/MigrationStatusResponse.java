@@ -0,0 +1,51 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigrationStatusResponse {
+
+    // すべて成功して依存 API を受け付けているか
+    private boolean ready;
+
+    // 失敗したマイグレーションがある（再起動で残りから再実行するまで依存 API は 503 のまま）
+    private boolean failed;
+
+    // 開始からの経過秒数（完了後は所要秒数）
+    private Long elapsedSeconds;
+
+    // 残り時間の見積もり（秒）。見積もれないマイグレーションが残っている間は null
+    private Long etaSeconds;
+
+    private List<Item> migrations;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+
+        private String name;
+
+        // PENDING / RUNNING / COMPLETED / FAILED
+        private String state;
+
+        private String startedAt;
+
+        private String finishedAt;
+
+        // チャンク単位で進むもののみ（それ以外は 0）
+        private long totalChunks;
+
+        private long doneChunks;
+
+        private Long etaSeconds;
+
+        private String error;
+    }
+}
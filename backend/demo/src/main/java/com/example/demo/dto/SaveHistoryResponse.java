@@ -13,6 +13,8 @@ public class SaveHistoryResponse {
 
     private String duplicateOfId;
 
+    private String dedupStatus;
+
     private String subject;
 
     private String body;
@@ -5,8 +5,12 @@ import lombok.Data;
 @Data
 public class SlackIntegrationResponse {
 
+    // queued（受け付け済み）/ error
     private String status;
 
+    // 状態の問い合わせ（GET /api/integrations/slack/{messageId}）に使う ID
+    private String messageId;
+
     private String ts;
 
     private String errorMessage;
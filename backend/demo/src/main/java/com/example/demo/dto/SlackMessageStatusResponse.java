@@ -0,0 +1,24 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+@Data
+public class SlackMessageStatusResponse {
+
+    private String messageId;
+
+    // PENDING / SENDING / SENT / FAILED
+    private String status;
+
+    private int attempts;
+
+    // 送信済みの場合のみ
+    private String ts;
+
+    // 直近の失敗理由（再送待ち・FAILED のとき）
+    private String errorMessage;
+
+    private String createdAt;
+
+    private String sentAt;
+}
@@ -0,0 +1,16 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopSubjectResponse {
+
+    private String subject;
+
+    // 推定件数（count-min sketch のため実際以上の値になりうる）
+    private long estimatedCount;
+}
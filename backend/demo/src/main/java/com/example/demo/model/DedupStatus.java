@@ -0,0 +1,9 @@
+package com.example.demo.model;
+
+/**
+ * 重複判定の進捗。非同期モードでは保存直後は PENDING で、ワーカーが判定すると DONE になる。
+ */
+public enum DedupStatus {
+    PENDING,
+    DONE
+}
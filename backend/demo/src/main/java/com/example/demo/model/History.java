@@ -5,7 +5,16 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "history")
+@Table(name = "history", indexes = {
+        @Index(name = "idx_history_timestamp_id", columnList = "timestamp, id"),
+        @Index(name = "idx_history_updated_at_id", columnList = "updated_at, id"),
+        @Index(name = "idx_history_content_hash_id", columnList = "content_hash, id"),
+        @Index(name = "idx_history_created_by_timestamp", columnList = "created_by, timestamp"),
+        @Index(name = "idx_history_simhash_b0", columnList = "sim_hash_block0"),
+        @Index(name = "idx_history_simhash_b1", columnList = "sim_hash_block1"),
+        @Index(name = "idx_history_simhash_b2", columnList = "sim_hash_block2"),
+        @Index(name = "idx_history_simhash_b3", columnList = "sim_hash_block3")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,7 +27,14 @@ public class History {
     private String subject;
 
     @Column(columnDefinition = "TEXT")
-    private String body;
+    private String body;               // 圧縮保存時は NULL（HistoryBodyCodec#read で読む）
+
+    @Lob
+    @Column(name = "body_compressed", columnDefinition = "MEDIUMBLOB")
+    private byte[] bodyCompressed;     // 辞書付き deflate で圧縮した本文
+
+    @Column(name = "body_dictionary_id")
+    private Long bodyDictionaryId;     // 圧縮に使った history_body_dictionary.id（NULL は辞書なし）
 
     private LocalDateTime timestamp = LocalDateTime.now(); // 履歴発生時刻
 
@@ -30,4 +46,40 @@ public class History {
     private Double similarityScore;    // 類似度
 
     private Long duplicateOfId;        // 重複元ID
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;   // 最終更新時刻（差分同期のカーソル）
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dedup_status", length = 16)
+    private DedupStatus dedupStatus;   // 重複判定の状態（NULL は判定済みの既存行）
+
+    @Lob
+    @Column(columnDefinition = "MEDIUMBLOB")
+    private byte[] shingles;           // 正規化済み本文の bigram フィンガープリント（SimilarityKernel#encode）
+
+    @Column(name = "content_hash", columnDefinition = "BINARY(32)")
+    private byte[] contentHash;        // 正規化済み本文の SHA-256（完全一致の重複判定用）
+
+    @Column(name = "sim_hash")
+    private Long simHash;              // 64bit SimHash
+
+    // SimHash を 16bit ずつ分割したブロック（等価検索用の索引列）
+    @Column(name = "sim_hash_block0")
+    private Integer simHashBlock0;
+
+    @Column(name = "sim_hash_block1")
+    private Integer simHashBlock1;
+
+    @Column(name = "sim_hash_block2")
+    private Integer simHashBlock2;
+
+    @Column(name = "sim_hash_block3")
+    private Integer simHashBlock3;
+
+    @PrePersist
+    @PreUpdate
+    protected void onWrite() {
+        updatedAt = LocalDateTime.now();
+    }
 }
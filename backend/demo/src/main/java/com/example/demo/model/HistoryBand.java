@@ -0,0 +1,68 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+
+/**
+ * history 1 行ごとの MinHash LSH バンドキー。重複候補は band_key の索引引きで取得する。
+ */
+@Entity
+@Table(name = "history_band", indexes = {
+        @Index(name = "idx_history_band_key", columnList = "band_key, history_id")
+})
+@IdClass(HistoryBand.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class HistoryBand implements Persistable<HistoryBand.Key> {
+
+    @Id
+    @Column(name = "history_id")
+    private Long historyId;
+
+    @Id
+    @Column(name = "band_no")
+    private Integer bandNo;
+
+    @Column(name = "band_key", nullable = false)
+    private Long bandKey;
+
+    // 挿入専用のため save() 時の SELECT（merge）を避ける
+    @Transient
+    private boolean persisted;
+
+    public HistoryBand(Long historyId, Integer bandNo, Long bandKey) {
+        this.historyId = historyId;
+        this.bandNo = bandNo;
+        this.bandKey = bandKey;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(historyId, bandNo);
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markPersisted() {
+        persisted = true;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long historyId;
+        private Integer bandNo;
+    }
+}
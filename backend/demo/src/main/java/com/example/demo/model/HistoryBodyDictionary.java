@@ -0,0 +1,31 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * history.body_compressed の圧縮に使う共有辞書（頻出行を連結したもの）。
+ * 圧縮済みの行が参照するため、作成後は変更・削除しない。
+ */
+@Entity
+@Table(name = "history_body_dictionary")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoryBodyDictionary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Lob
+    @Column(columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] dictionary;
+
+    @Column(name = "sample_count")
+    private int sampleCount;       // 学習に使った本文の件数
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
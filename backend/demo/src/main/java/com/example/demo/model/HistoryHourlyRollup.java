@@ -0,0 +1,39 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDate;
+
+/**
+ * (created_by, 日付, 時, 件名) ごとの history 件数。history の保存・更新・削除と同じトランザクションで増減する。
+ * 件名が NULL の行は空文字で集計する（一意キーで NULL 同士が別扱いになるのを避けるため）。
+ */
+@Entity
+@Table(name = "history_hourly_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_history_hourly_rollup",
+                columnNames = {"created_by", "activity_date", "activity_hour", "subject"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoryHourlyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "created_by", nullable = false)
+    private String createdBy;
+
+    @Column(name = "activity_date", nullable = false)
+    private LocalDate activityDate;
+
+    @Column(name = "activity_hour", nullable = false)
+    private int activityHour;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(name = "action_count", nullable = false)
+    private long actionCount;
+}
@@ -0,0 +1,38 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDate;
+
+/**
+ * 日ごとの近似集計（HyperLogLog の異なりユーザー数、count-min sketch の頻出件名）。
+ * scope は created_by（小文字）または全体を表す "*"。各列は deflate 圧縮したシリアライズ形式で、
+ * ノードごとの差分を加算・最大値で合算して書き戻す。
+ */
+@Entity
+@Table(name = "history_sketch", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_history_sketch", columnNames = {"scope", "bucket_date"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorySketch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String scope;
+
+    @Column(name = "bucket_date", nullable = false)
+    private LocalDate bucketDate;
+
+    @Lob
+    @Column(name = "users_sketch", columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] usersSketch;
+
+    @Lob
+    @Column(name = "subjects_sketch", columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] subjectsSketch;
+}
@@ -0,0 +1,25 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * history_sketch を history_hourly_rollup から作り終えた印（id = 1 の 1 行だけ）。
+ * この行がなければ起動後に history_sketch を作り直す。
+ */
+@Entity
+@Table(name = "history_sketch_seed")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorySketchSeed {
+
+    public static final long ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "seeded_at", nullable = false)
+    private LocalDateTime seededAt;
+}
@@ -0,0 +1,25 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * 削除済み history の記録。差分同期（/api/history/changes）で削除をクライアントへ伝える。
+ */
+@Entity
+@Table(name = "history_tombstone", indexes = {
+        @Index(name = "idx_history_tombstone_deleted_at_id", columnList = "deleted_at, history_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoryTombstone {
+
+    @Id
+    @Column(name = "history_id")
+    private Long historyId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+}
@@ -0,0 +1,41 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * データマイグレーションの処理済み範囲（主キー [range_start, range_end) ごとに 1 行）。
+ * 再起動時は失敗のない範囲を読み飛ばして続きから処理する。
+ */
+@Entity
+@Table(name = "migration_checkpoint", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_migration_checkpoint", columnNames = {"migration", "range_start"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigrationCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String migration;
+
+    @Column(name = "range_start", nullable = false)
+    private long rangeStart;
+
+    @Column(name = "range_end", nullable = false)
+    private long rangeEnd;
+
+    @Column(name = "processed_rows", nullable = false)
+    private int processedRows;
+
+    @Column(name = "failed_rows", nullable = false)
+    private int failedRows;   // 0 でなければ再起動時に再処理する
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+}
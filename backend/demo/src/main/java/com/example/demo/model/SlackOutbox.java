@@ -0,0 +1,58 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Slack への送信待ちメッセージ。受け付け時に保存し、{@code SlackOutboxDispatcher} が非同期に送る。
+ */
+@Entity
+@Table(name = "slack_outbox", indexes = {
+        @Index(name = "idx_slack_outbox_status_next_attempt", columnList = "status, next_attempt_at")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_slack_outbox_message_id", columnNames = "message_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlackOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 呼び出し元に返す ID（状態の問い合わせに使う）
+    @Column(name = "message_id", nullable = false, length = 36)
+    private String messageId;
+
+    @Column(nullable = false, length = 100)
+    private String channel;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String text;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private SlackOutboxStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // PENDING: 次に送る時刻 / SENDING: 送信の期限（過ぎたら再送）
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    // Slack が返したメッセージの ts
+    @Column(length = 32)
+    private String ts;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+}
@@ -0,0 +1,12 @@
+package com.example.demo.model;
+
+/**
+ * Slack 送信キュー（slack_outbox）の状態。
+ * SENDING は送信中の行で、next_attempt_at を過ぎても終わっていなければ（プロセス停止など）再送対象に戻る。
+ */
+public enum SlackOutboxStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED
+}
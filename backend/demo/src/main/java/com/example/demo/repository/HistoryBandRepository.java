@@ -0,0 +1,39 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.HistoryBand;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface HistoryBandRepository extends JpaRepository<HistoryBand, HistoryBand.Key> {
+
+    // いずれかのバンドキーを共有する history ID
+    @Query("SELECT DISTINCT b.historyId FROM HistoryBand b WHERE b.bandKey IN :bandKeys")
+    List<Long> findHistoryIdsByBandKeyIn(@Param("bandKeys") Collection<Long> bandKeys);
+
+    @Query("SELECT b.bandKey AS bandKey, b.historyId AS historyId FROM HistoryBand b WHERE b.bandKey IN :bandKeys")
+    List<BandView> findBandsByBandKeyIn(@Param("bandKeys") Collection<Long> bandKeys);
+
+    @Modifying
+    @Query("DELETE FROM HistoryBand b WHERE b.historyId = :historyId")
+    void deleteByHistoryId(@Param("historyId") Long historyId);
+
+    // フィンガープリントまたはバンドが未登録の history ID（バックフィル用）
+    @Query("SELECT h.id FROM History h WHERE (h.body IS NOT NULL OR h.bodyCompressed IS NOT NULL) AND (h.shingles IS NULL OR h.simHash IS NULL " +
+            "OR h.contentHash IS NULL " +
+            "OR NOT EXISTS (SELECT 1 FROM HistoryBand b WHERE b.historyId = h.id)) ORDER BY h.id")
+    List<Long> findUnindexedHistoryIds(Pageable pageable);
+
+    interface BandView {
+        Long getBandKey();
+
+        Long getHistoryId();
+    }
+}
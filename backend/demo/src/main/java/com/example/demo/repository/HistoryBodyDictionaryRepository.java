@@ -0,0 +1,19 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.HistoryBodyDictionary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface HistoryBodyDictionaryRepository extends JpaRepository<HistoryBodyDictionary, Long> {
+
+    // 新規の圧縮に使う辞書（最後に学習したもの）
+    Optional<HistoryBodyDictionary> findFirstByOrderByIdDesc();
+
+    @Query("SELECT d.id FROM HistoryBodyDictionary d")
+    List<Long> findAllIds();
+}
@@ -0,0 +1,50 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.HistoryHourlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface HistoryHourlyRollupRepository extends JpaRepository<HistoryHourlyRollup, Long> {
+
+    // 時間帯別の件数（一意キーの先頭列 created_by で絞り込む）
+    @Query("SELECT r.activityHour AS key, SUM(r.actionCount) AS count FROM HistoryHourlyRollup r " +
+            "WHERE r.createdBy = :createdBy GROUP BY r.activityHour HAVING SUM(r.actionCount) > 0")
+    List<HourCount> countByHour(@Param("createdBy") String createdBy);
+
+    // 期間指定の件名別件数（from/to は時単位。(日付, 時) が [from, to) の範囲）
+    @Query("SELECT r.subject AS key, SUM(r.actionCount) AS count FROM HistoryHourlyRollup r " +
+            "WHERE r.createdBy = :createdBy " +
+            "AND (r.activityDate > :fromDate OR (r.activityDate = :fromDate AND r.activityHour >= :fromHour)) " +
+            "AND (r.activityDate < :toDate OR (r.activityDate = :toDate AND r.activityHour < :toHour)) " +
+            "GROUP BY r.subject HAVING SUM(r.actionCount) > 0")
+    List<SubjectCount> countBySubjectBetween(@Param("createdBy") String createdBy,
+                                             @Param("fromDate") LocalDate fromDate, @Param("fromHour") int fromHour,
+                                             @Param("toDate") LocalDate toDate, @Param("toHour") int toHour);
+
+    @Query("SELECT r.activityHour AS key, SUM(r.actionCount) AS count FROM HistoryHourlyRollup r " +
+            "WHERE r.createdBy = :createdBy " +
+            "AND (r.activityDate > :fromDate OR (r.activityDate = :fromDate AND r.activityHour >= :fromHour)) " +
+            "AND (r.activityDate < :toDate OR (r.activityDate = :toDate AND r.activityHour < :toHour)) " +
+            "GROUP BY r.activityHour HAVING SUM(r.actionCount) > 0")
+    List<HourCount> countByHourBetween(@Param("createdBy") String createdBy,
+                                       @Param("fromDate") LocalDate fromDate, @Param("fromHour") int fromHour,
+                                       @Param("toDate") LocalDate toDate, @Param("toHour") int toHour);
+
+    interface SubjectCount {
+        String getKey();
+
+        Long getCount();
+    }
+
+    interface HourCount {
+        Integer getKey();
+
+        Long getCount();
+    }
+}
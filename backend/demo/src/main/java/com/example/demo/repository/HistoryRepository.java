@@ -1,9 +1,234 @@
 package com.example.demo.repository;
 
+import com.example.demo.model.DedupStatus;
 import com.example.demo.model.History;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface HistoryRepository extends JpaRepository<History, Long> {
+
+    // 新しい順（idx_history_timestamp_id を使うため id も含めて並べる）
+    List<History> findAllByOrderByTimestampDescIdDesc();
+
+    // キーセットページング：先頭ページ
+    @Query("SELECT h FROM History h ORDER BY h.timestamp DESC, h.id DESC")
+    List<History> findLatest(Pageable pageable);
+
+    // キーセットページング：(timestamp, id) がカーソルより古い行
+    @Query("SELECT h FROM History h WHERE h.timestamp < :timestamp OR (h.timestamp = :timestamp AND h.id < :id) " +
+            "ORDER BY h.timestamp DESC, h.id DESC")
+    List<History> findOlderThan(@Param("timestamp") LocalDateTime timestamp, @Param("id") Long id, Pageable pageable);
+
+    // 一覧用（本文を読まない）：先頭ページ
+    @Query("SELECT h.id AS id, h.subject AS subject, h.timestamp AS timestamp, h.createdBy AS createdBy, " +
+            "h.duplicate AS duplicate, h.similarityScore AS similarityScore, h.duplicateOfId AS duplicateOfId, " +
+            "h.dedupStatus AS dedupStatus FROM History h " +
+            "ORDER BY h.timestamp DESC, h.id DESC")
+    List<SummaryView> findLatestSummaries(Pageable pageable);
+
+    // 一覧用（本文を読まない）：(timestamp, id) がカーソルより古い行
+    @Query("SELECT h.id AS id, h.subject AS subject, h.timestamp AS timestamp, h.createdBy AS createdBy, " +
+            "h.duplicate AS duplicate, h.similarityScore AS similarityScore, h.duplicateOfId AS duplicateOfId, " +
+            "h.dedupStatus AS dedupStatus FROM History h " +
+            "WHERE h.timestamp < :timestamp OR (h.timestamp = :timestamp AND h.id < :id) " +
+            "ORDER BY h.timestamp DESC, h.id DESC")
+    List<SummaryView> findSummariesOlderThan(@Param("timestamp") LocalDateTime timestamp, @Param("id") Long id,
+                                             Pageable pageable);
+
+    @Query("SELECT h.id AS id, h.subject AS subject, h.timestamp AS timestamp, h.createdBy AS createdBy, " +
+            "h.duplicate AS duplicate, h.similarityScore AS similarityScore, h.duplicateOfId AS duplicateOfId, " +
+            "h.dedupStatus AS dedupStatus FROM History h " +
+            "WHERE h.id IN :ids")
+    List<SummaryView> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 本文取得用（本文の列だけを読む）
+    @Query("SELECT h.body AS body, h.bodyCompressed AS bodyCompressed, h.bodyDictionaryId AS bodyDictionaryId " +
+            "FROM History h WHERE h.id = :id")
+    Optional<BodyView> findBodyById(@Param("id") Long id);
+
+    // 分析用：期間 [from, to) の件名別件数（idx_history_created_by_timestamp の範囲走査）
+    @Query("SELECT COALESCE(h.subject, '') AS key, COUNT(h) AS count FROM History h " +
+            "WHERE h.createdBy = :createdBy AND h.timestamp >= :from AND h.timestamp < :to " +
+            "GROUP BY COALESCE(h.subject, '')")
+    List<SubjectCount> countBySubject(@Param("createdBy") String createdBy,
+                                      @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // 分析用：期間 [from, to) の時間帯別件数
+    @Query("SELECT HOUR(h.timestamp) AS key, COUNT(h) AS count FROM History h " +
+            "WHERE h.createdBy = :createdBy AND h.timestamp >= :from AND h.timestamp < :to " +
+            "GROUP BY HOUR(h.timestamp)")
+    List<HourCount> countByHour(@Param("createdBy") String createdBy,
+                                @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // 差分同期：(updatedAt, id) がカーソルより新しく、horizon 以前に更新された行（idx_history_updated_at_id）
+    @Query("SELECT h FROM History h WHERE (h.updatedAt > :updatedAt OR (h.updatedAt = :updatedAt AND h.id > :id)) " +
+            "AND h.updatedAt <= :horizon ORDER BY h.updatedAt, h.id")
+    List<History> findChangedAfter(@Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id,
+                                   @Param("horizon") LocalDateTime horizon, Pageable pageable);
+
+    // エクスポート用。MySQL Connector/J は fetchSize = Integer.MIN_VALUE で 1 行ずつ受け取る（結果セットを溜めない）
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT h FROM History h ORDER BY h.id")
+    Stream<History> streamAll();
+
+    // 全文検索索引の再構築用（件名・本文のみをストリームで読む）
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT h.id AS id, h.subject AS subject, h.body AS body, h.bodyCompressed AS bodyCompressed, " +
+            "h.bodyDictionaryId AS bodyDictionaryId FROM History h")
+    Stream<SearchDocumentView> streamSearchDocuments();
+
+    // 分析用スナップショットの読み込み（メタデータのみをストリームで読む）
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT h.id AS id, h.createdBy AS createdBy, h.subject AS subject, h.timestamp AS timestamp, " +
+            "h.duplicate AS duplicate FROM History h")
+    Stream<SnapshotRowView> streamSnapshotRows();
+
+    // 重複判定用にフィンガープリントだけを取得（本文は読まない）
+    @Query("SELECT h.id AS id, h.shingles AS shingles FROM History h WHERE h.id IN :ids AND h.shingles IS NOT NULL")
+    List<ShinglesView> findShinglesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 本文圧縮の辞書学習用（新しい順）
+    @Query("SELECT h.body FROM History h WHERE h.body IS NOT NULL ORDER BY h.id DESC")
+    List<String> findRecentPlainBodies(Pageable pageable);
+
+    // 再圧縮ジョブ用：id がカーソルより大きい未圧縮の行
+    @Query("SELECT h.id AS id, h.body AS body, h.updatedAt AS updatedAt FROM History h " +
+            "WHERE h.id > :afterId AND h.body IS NOT NULL ORDER BY h.id")
+    List<PlainBodyView> findPlainBodiesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // 正規化済み本文が完全一致する最古の履歴（idx_history_content_hash_id の先頭だけを読む）
+    @Query("SELECT MIN(h.id) FROM History h WHERE h.contentHash = :contentHash")
+    Optional<Long> findFirstIdByContentHash(@Param("contentHash") byte[] contentHash);
+
+    // SimHash のいずれかのブロックが一致する履歴（各ブロック列の索引で引く）
+    @Query("SELECT h.id AS id, h.simHash AS simHash FROM History h WHERE h.simHashBlock0 = :b0 " +
+            "OR h.simHashBlock1 = :b1 OR h.simHashBlock2 = :b2 OR h.simHashBlock3 = :b3")
+    List<SimHashView> findSimHashCandidates(@Param("b0") int b0, @Param("b1") int b1,
+                                            @Param("b2") int b2, @Param("b3") int b3);
+
+    // 非同期の重複判定用（本文は読まない）
+    @Query("SELECT h.id AS id, h.shingles AS shingles, h.simHash AS simHash, h.dedupStatus AS dedupStatus " +
+            "FROM History h WHERE h.id = :id")
+    Optional<FingerprintView> findFingerprintById(@Param("id") Long id);
+
+    @Query("SELECT h.id FROM History h WHERE h.dedupStatus = :status AND h.id > :afterId ORDER BY h.id")
+    List<Long> findIdsByDedupStatusAfter(@Param("status") DedupStatus status,
+                                         @Param("afterId") Long afterId,
+                                         Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE History h SET h.duplicate = :duplicate, h.similarityScore = :similarityScore, " +
+            "h.duplicateOfId = :duplicateOfId, h.dedupStatus = com.example.demo.model.DedupStatus.DONE, " +
+            "h.updatedAt = :updatedAt WHERE h.id = :id")
+    int markDedupDone(@Param("id") Long id,
+                      @Param("duplicate") boolean duplicate,
+                      @Param("similarityScore") Double similarityScore,
+                      @Param("duplicateOfId") Long duplicateOfId,
+                      @Param("updatedAt") LocalDateTime updatedAt);
+
+    interface SearchDocumentView {
+        Long getId();
+
+        String getSubject();
+
+        String getBody();
+
+        byte[] getBodyCompressed();
+
+        Long getBodyDictionaryId();
+    }
+
+    interface PlainBodyView {
+        Long getId();
+
+        String getBody();
+
+        LocalDateTime getUpdatedAt();
+    }
+
+    interface SnapshotRowView {
+        Long getId();
+
+        String getCreatedBy();
+
+        String getSubject();
+
+        LocalDateTime getTimestamp();
+
+        Boolean getDuplicate();
+    }
+
+    interface SummaryView {
+        Long getId();
+
+        String getSubject();
+
+        LocalDateTime getTimestamp();
+
+        String getCreatedBy();
+
+        Boolean getDuplicate();
+
+        Double getSimilarityScore();
+
+        Long getDuplicateOfId();
+
+        DedupStatus getDedupStatus();
+    }
+
+    interface BodyView {
+        String getBody();
+
+        byte[] getBodyCompressed();
+
+        Long getBodyDictionaryId();
+    }
+
+    interface SubjectCount {
+        String getKey();
+
+        Long getCount();
+    }
+
+    interface HourCount {
+        Integer getKey();
+
+        Long getCount();
+    }
+
+    interface ShinglesView {
+        Long getId();
+
+        byte[] getShingles();
+    }
+
+    interface FingerprintView {
+        Long getId();
+
+        byte[] getShingles();
+
+        Long getSimHash();
+
+        DedupStatus getDedupStatus();
+    }
+
+    interface SimHashView {
+        Long getId();
+
+        Long getSimHash();
+    }
 }
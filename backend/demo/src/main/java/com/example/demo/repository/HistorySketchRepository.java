@@ -0,0 +1,24 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.HistorySketch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface HistorySketchRepository extends JpaRepository<HistorySketch, Long> {
+
+    // 差分の合算用（他ノードの書き戻しと直列化する）
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM HistorySketch s WHERE s.scope = :scope AND s.bucketDate = :bucketDate")
+    Optional<HistorySketch> findForUpdate(@Param("scope") String scope, @Param("bucketDate") LocalDate bucketDate);
+
+    List<HistorySketch> findByScopeAndBucketDateBetween(String scope, LocalDate from, LocalDate to);
+}
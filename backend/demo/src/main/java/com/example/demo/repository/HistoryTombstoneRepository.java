@@ -0,0 +1,24 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.HistoryTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface HistoryTombstoneRepository extends JpaRepository<HistoryTombstone, Long> {
+
+    // 差分同期：(deletedAt, historyId) がカーソルより新しく、horizon 以前の削除
+    @Query("SELECT t FROM HistoryTombstone t WHERE (t.deletedAt > :deletedAt " +
+            "OR (t.deletedAt = :deletedAt AND t.historyId > :historyId)) AND t.deletedAt <= :horizon " +
+            "ORDER BY t.deletedAt, t.historyId")
+    List<HistoryTombstone> findDeletedAfter(@Param("deletedAt") LocalDateTime deletedAt,
+                                            @Param("historyId") Long historyId,
+                                            @Param("horizon") LocalDateTime horizon,
+                                            Pageable pageable);
+}
@@ -0,0 +1,22 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.MigrationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MigrationCheckpointRepository extends JpaRepository<MigrationCheckpoint, Long> {
+
+    // 失敗なく完了した範囲（開始位置順）
+    @Query("SELECT c FROM MigrationCheckpoint c WHERE c.migration = :migration AND c.failedRows = 0 ORDER BY c.rangeStart")
+    List<MigrationCheckpoint> findCompleted(@Param("migration") String migration);
+
+    @Modifying
+    @Query("DELETE FROM MigrationCheckpoint c WHERE c.migration = :migration AND c.rangeStart = :rangeStart")
+    void deleteRange(@Param("migration") String migration, @Param("rangeStart") long rangeStart);
+}
@@ -0,0 +1,41 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.SlackOutbox;
+import com.example.demo.model.SlackOutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SlackOutboxRepository extends JpaRepository<SlackOutbox, Long> {
+
+    Optional<SlackOutbox> findByMessageId(String messageId);
+
+    long countByStatusIn(Collection<SlackOutboxStatus> statuses);
+
+    // 送信時刻を過ぎた PENDING と、期限切れの SENDING（古い順）
+    @Query("SELECT o.id FROM SlackOutbox o WHERE o.status IN :statuses AND o.nextAttemptAt <= :now ORDER BY o.nextAttemptAt, o.id")
+    List<Long> findDueIds(@Param("statuses") Collection<SlackOutboxStatus> statuses,
+                          @Param("now") LocalDateTime now,
+                          Pageable pageable);
+
+    /**
+     * 送信する権利を取る（他のスレッド・ノードが先に取っていれば 0 件）
+     */
+    @Modifying
+    @Query("UPDATE SlackOutbox o SET o.status = com.example.demo.model.SlackOutboxStatus.SENDING, " +
+            "o.nextAttemptAt = :leaseUntil, o.attempts = o.attempts + 1 " +
+            "WHERE o.id = :id AND o.status IN :statuses AND o.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id,
+              @Param("statuses") Collection<SlackOutboxStatus> statuses,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+}
@@ -0,0 +1,41 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 保存済み履歴から重複元を探す戦略。history.dedup.strategy で切り替える（jaccard / simhash）。
+ */
+public interface DuplicateDetector {
+
+    /**
+     * @param olderThanId この ID より前に保存された履歴だけを対象にする（null なら全件）。
+     *                    保存後に判定する場合に自分自身や後続の行を重複元にしないため。
+     */
+    Optional<DuplicateMatch> findDuplicate(HistoryFingerprint fingerprint, Long olderThanId);
+
+    default Optional<DuplicateMatch> findDuplicate(HistoryFingerprint fingerprint) {
+        return findDuplicate(fingerprint, null);
+    }
+
+    /**
+     * 複数件をまとめて保存済み履歴と照合する（一括取り込み用）。戻り値は引数と同じ順序。
+     */
+    default List<Optional<DuplicateMatch>> findDuplicates(List<HistoryFingerprint> fingerprints) {
+        List<Optional<DuplicateMatch>> matches = new ArrayList<>(fingerprints.size());
+        for (HistoryFingerprint fingerprint : fingerprints) {
+            matches.add(findDuplicate(fingerprint));
+        }
+        return matches;
+    }
+
+    /**
+     * 未保存の履歴同士を照合するための候補キー。キーを 1 つでも共有する組だけを {@link #similarity} で比較する。
+     */
+    long[] candidateKeys(HistoryFingerprint fingerprint);
+
+    double similarity(HistoryFingerprint a, HistoryFingerprint b);
+
+    boolean isDuplicate(double similarity);
+}
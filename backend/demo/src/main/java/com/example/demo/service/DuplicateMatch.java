@@ -0,0 +1,7 @@
+package com.example.demo.service;
+
+/**
+ * 重複判定の結果（重複元 ID と類似度）
+ */
+public record DuplicateMatch(Long historyId, double score) {
+}
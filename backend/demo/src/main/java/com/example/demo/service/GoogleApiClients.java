@@ -0,0 +1,78 @@
+package com.example.demo.service;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeTokenRequest;
+import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.api.client.googleapis.auth.oauth2.GoogleTokenResponse;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.calendar.Calendar;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Google API の呼び出しに使うクライアントを組み立てる。
+ * トランスポートは共有の NetHttpTransport を使い、すべての要求（トークン更新を含む）に
+ * outbound.google.* の接続・読み取りタイムアウトを設定する。
+ */
+@Component
+public class GoogleApiClients {
+
+    private final NetHttpTransport transport;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    @Value("${google.client.id}")
+    private String clientId;
+
+    @Value("${google.client.secret}")
+    private String clientSecret;
+
+    public GoogleApiClients(NetHttpTransport googleHttpTransport,
+                            @Value("${outbound.google.connect-timeout:5s}") Duration connectTimeout,
+                            @Value("${outbound.google.read-timeout:20s}") Duration readTimeout) {
+        this.transport = googleHttpTransport;
+        this.connectTimeoutMillis = (int) connectTimeout.toMillis();
+        this.readTimeoutMillis = (int) readTimeout.toMillis();
+    }
+
+    /**
+     * 認可コードをトークンに交換する
+     */
+    public GoogleTokenResponse exchangeCode(String code, String redirectUri) throws IOException {
+        return new GoogleAuthorizationCodeTokenRequest(transport, JacksonFactory.getDefaultInstance(),
+                clientId, clientSecret, code, redirectUri)
+                .setRequestInitializer(withTimeouts(null))
+                .execute();
+    }
+
+    /**
+     * refresh token でアクセスするカレンダー API クライアント
+     */
+    public Calendar calendar(String refreshToken, String applicationName) {
+        GoogleCredential credential = new GoogleCredential.Builder()
+                .setClientSecrets(clientId, clientSecret)
+                .setTransport(transport)
+                .setJsonFactory(JacksonFactory.getDefaultInstance())
+                .setRequestInitializer(withTimeouts(null))
+                .build()
+                .setRefreshToken(refreshToken);
+
+        return new Calendar.Builder(transport, JacksonFactory.getDefaultInstance(), withTimeouts(credential))
+                .setApplicationName(applicationName)
+                .build();
+    }
+
+    private HttpRequestInitializer withTimeouts(HttpRequestInitializer delegate) {
+        return request -> {
+            if (delegate != null) {
+                delegate.initialize(request);
+            }
+            request.setConnectTimeout(connectTimeoutMillis);
+            request.setReadTimeout(readTimeoutMillis);
+        };
+    }
+}
@@ -4,14 +4,10 @@ import com.example.demo.dto.GoogleCalendarIntegrationRequest;
 import com.example.demo.dto.GoogleCalendarIntegrationResponse;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
-import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.calendar.Calendar;
 import com.google.api.services.calendar.model.Event;
 import com.google.api.services.calendar.model.EventAttendee;
 import com.google.api.services.calendar.model.EventDateTime;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -21,17 +17,13 @@ import java.util.List;
 public class GoogleCalendarService {
 
     private final UserRepository userRepository;
+    private final GoogleApiClients googleApiClients;
 
-    public GoogleCalendarService(UserRepository userRepository) {
+    public GoogleCalendarService(UserRepository userRepository, GoogleApiClients googleApiClients) {
         this.userRepository = userRepository;
+        this.googleApiClients = googleApiClients;
     }
 
-    @Value("${google.client.id}")
-    private String clientId;
-
-    @Value("${google.client.secret}")
-    private String clientSecret;
-
     public GoogleCalendarIntegrationResponse createEvent(GoogleCalendarIntegrationRequest request) {
         GoogleCalendarIntegrationResponse response = new GoogleCalendarIntegrationResponse();
 
@@ -65,17 +57,8 @@ public class GoogleCalendarService {
         }
 
         try {
-            // Google 認証クレデンシャル
-            GoogleCredential credential = new GoogleCredential.Builder()
-                    .setClientSecrets(clientId, clientSecret)
-                    .setTransport(new NetHttpTransport())
-                    .setJsonFactory(JacksonFactory.getDefaultInstance())
-                    .build()
-                    .setRefreshToken(user.getRefreshToken());
-
-            Calendar service = new Calendar.Builder(new NetHttpTransport(), JacksonFactory.getDefaultInstance(), credential)
-                    .setApplicationName("Mail AI Calendar Integration")
-                    .build();
+            // Google 認証クレデンシャル付きのクライアント
+            Calendar service = googleApiClients.calendar(user.getRefreshToken(), "Mail AI Calendar Integration");
 
             // イベントオブジェクトの作成
             Event event = new Event()
@@ -0,0 +1,173 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ライブ表示用の履歴保存数カウンタ（プロセス内のみ、MySQL は参照しない）。
+ * <p>
+ * ユーザー（created_by、大文字小文字は区別しない）ごとに 1 分単位のバケットを retention 分だけリングで持つ。
+ * バケットは「何分目の集計か」と LongAdder の組で、分が変わったスロットは新しい組に差し替えるので、
+ * 古い値のリセットと同時に加算しても取りこぼさない。再起動すると 0 から数え直す。
+ * retention 分より前から加算のないユーザーのリングは定期的に捨て、同時に持つユーザー数は history.live.max-users までにする
+ * （created_by はクライアントが決めるため、上限がないと任意にヒープを増やせる）。
+ */
+@Component
+public class HistoryActivityCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryActivityCounters.class);
+
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+
+    private final int retentionMinutes;
+    private final int maxUsers;
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+    private volatile boolean capacityWarned;
+
+    public HistoryActivityCounters(@Value("${history.live.retention-minutes:1440}") int retentionMinutes,
+                                   @Value("${history.live.max-users:10000}") int maxUsers) {
+        this.retentionMinutes = retentionMinutes;
+        this.maxUsers = maxUsers;
+    }
+
+    public int getRetentionMinutes() {
+        return retentionMinutes;
+    }
+
+    /**
+     * 現在のトランザクションのコミット後に 1 件加算する（ロールバックされた保存は数えない）
+     */
+    public void recordAfterCommit(String user) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(user, System.currentTimeMillis());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(user, System.currentTimeMillis());
+            }
+        });
+    }
+
+    // compute の中で加算するので、evictIdle の削除と競合しても加算は失われない
+    void record(String user, long epochMillis) {
+        long minute = epochMillis / MILLIS_PER_MINUTE;
+        rings.compute(key(user), (key, ring) -> {
+            if (ring == null) {
+                if (rings.size() >= maxUsers) {
+                    if (!capacityWarned) {
+                        capacityWarned = true;
+                        log.warn("Live activity counters reached history.live.max-users={}; new users are not counted", maxUsers);
+                    }
+                    return null;
+                }
+                ring = new Ring(retentionMinutes);
+            }
+            ring.increment(minute);
+            return ring;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${history.live.evict-interval:PT5M}")
+    public void evictIdle() {
+        evictIdle(System.currentTimeMillis() / MILLIS_PER_MINUTE);
+    }
+
+    /**
+     * 最後の加算が retention 分より前のリングを捨てる（表示範囲に残る件数がないため）
+     */
+    void evictIdle(long nowMinute) {
+        long cutoff = nowMinute - retentionMinutes;
+        for (String key : rings.keySet()) {
+            rings.computeIfPresent(key, (k, ring) -> ring.latestMinute() <= cutoff ? null : ring);
+        }
+        if (rings.size() < maxUsers) {
+            capacityWarned = false;
+        }
+    }
+
+    int trackedUsers() {
+        return rings.size();
+    }
+
+    /**
+     * 直近 minutes 分（現在の分を含む）の 1 分ごとの件数。古い順。
+     */
+    public long[] perMinute(String user, int minutes) {
+        int window = Math.max(1, Math.min(minutes, retentionMinutes));
+        long[] counts = new long[window];
+        Ring ring = rings.get(key(user));
+        if (ring != null) {
+            long now = System.currentTimeMillis() / MILLIS_PER_MINUTE;
+            for (int i = 0; i < window; i++) {
+                counts[i] = ring.get(now - (window - 1 - i));
+            }
+        }
+        return counts;
+    }
+
+    private static String key(String user) {
+        return user == null ? "" : user.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Ring {
+        private final AtomicReferenceArray<Bucket> buckets;
+        private final AtomicLong latestMinute = new AtomicLong(Long.MIN_VALUE);
+
+        Ring(int size) {
+            this.buckets = new AtomicReferenceArray<>(size);
+        }
+
+        long latestMinute() {
+            return latestMinute.get();
+        }
+
+        void increment(long minute) {
+            latestMinute.accumulateAndGet(minute, Math::max);
+            int slot = (int) Math.floorMod(minute, (long) buckets.length());
+            while (true) {
+                Bucket bucket = buckets.get(slot);
+                if (bucket != null && bucket.minute == minute) {
+                    bucket.count.increment();
+                    return;
+                }
+                if (bucket != null && bucket.minute > minute) {
+                    // リングより古い時刻（時計の巻き戻り）は捨てる
+                    return;
+                }
+                Bucket fresh = new Bucket(minute);
+                fresh.count.increment();
+                if (buckets.compareAndSet(slot, bucket, fresh)) {
+                    return;
+                }
+            }
+        }
+
+        long get(long minute) {
+            Bucket bucket = buckets.get((int) Math.floorMod(minute, (long) buckets.length()));
+            return bucket != null && bucket.minute == minute ? bucket.count.sum() : 0;
+        }
+    }
+
+    private static final class Bucket {
+        final long minute;
+        final LongAdder count = new LongAdder();
+
+        Bucket(long minute) {
+            this.minute = minute;
+        }
+    }
+}
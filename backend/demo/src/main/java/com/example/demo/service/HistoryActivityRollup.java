@@ -0,0 +1,110 @@
+package com.example.demo.service;
+
+import com.example.demo.model.History;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * history_hourly_rollup（分析 API 用の時間別集計）の増減。
+ * 呼び出し元のトランザクション内で upsert するので、history の変更と集計は同時にコミット・ロールバックされる。
+ */
+@Component
+public class HistoryActivityRollup {
+
+    private static final String UPSERT = "INSERT INTO history_hourly_rollup " +
+            "(created_by, activity_date, activity_hour, subject, action_count) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE action_count = action_count + VALUES(action_count)";
+
+    private static final String CLEAR = "DELETE FROM history_hourly_rollup";
+
+    private static final String REBUILD = "INSERT INTO history_hourly_rollup " +
+            "(created_by, activity_date, activity_hour, subject, action_count) " +
+            "SELECT created_by, DATE(timestamp), HOUR(timestamp), COALESCE(subject, ''), COUNT(*) FROM history " +
+            "WHERE created_by IS NOT NULL AND timestamp IS NOT NULL " +
+            "GROUP BY created_by, DATE(timestamp), HOUR(timestamp), COALESCE(subject, '')";
+
+    private static final String COUNT = "SELECT COUNT(*) FROM history_hourly_rollup";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HistoryActivityRollup(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 集計上の 1 件を表すキー（created_by・発生時刻の日時・件名）
+     */
+    public record Key(String createdBy, LocalDateTime timestamp, String subject) {
+
+        public static Optional<Key> of(History history) {
+            return of(history.getCreatedBy(), history.getTimestamp(), history.getSubject());
+        }
+
+        public static Optional<Key> of(String createdBy, LocalDateTime timestamp, String subject) {
+            if (createdBy == null || timestamp == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new Key(createdBy, timestamp.withMinute(0).withSecond(0).withNano(0),
+                    subject != null ? subject : ""));
+        }
+    }
+
+    public void add(Optional<Key> key) {
+        key.ifPresent(k -> upsert(k, 1));
+    }
+
+    public void remove(Optional<Key> key) {
+        key.ifPresent(k -> upsert(k, -1));
+    }
+
+    /**
+     * 更新前後でキーが変わった場合だけ付け替える
+     */
+    public void move(Optional<Key> before, Optional<Key> after) {
+        if (!before.equals(after)) {
+            remove(before);
+            add(after);
+        }
+    }
+
+    /**
+     * キーごとの件数をまとめて加算する（一括取り込み用）
+     */
+    public void addAll(Map<Key, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> rows.add(args(key, count)));
+        jdbcTemplate.batchUpdate(UPSERT, rows);
+    }
+
+    public boolean isEmpty() {
+        Long count = jdbcTemplate.queryForObject(COUNT, Long.class);
+        return count == null || count == 0;
+    }
+
+    /**
+     * history から集計を作り直す（呼び出し元のトランザクション内で実行すること）
+     */
+    public int rebuild() {
+        jdbcTemplate.update(CLEAR);
+        return jdbcTemplate.update(REBUILD);
+    }
+
+    private void upsert(Key key, long delta) {
+        jdbcTemplate.update(UPSERT, args(key, delta));
+    }
+
+    private static Object[] args(Key key, long delta) {
+        return new Object[]{key.createdBy(), Date.valueOf(key.timestamp().toLocalDate()),
+                key.timestamp().getHour(), key.subject(), delta};
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * 分析 API の結果キャッシュ（LRU、history.analysis.cache.max-entries 件まで）。
+ * <p>
+ * キーは (role, 集計の種類とパラメータ)。その role の履歴が書き込まれるとコミット後にエントリを取り除くので、
+ * 書き込み前に始まった計算の結果は、その時点で待ち合わせていた呼び出し以外には返らない。
+ * 無効化はこの JVM 内の書き込みにしか働かないため、エントリは history.analysis.cache.ttl で期限切れにする
+ * （他ノードでの書き込みはこの時間内に反映される）。
+ * 同じキーの同時ミスは 1 つの CompletableFuture を共有し、計算は 1 回だけ行う（single-flight）。
+ * history.analysis.cache{result=hit|miss} でヒット率を確認できる。
+ */
+@Component
+public class HistoryAnalysisCache {
+
+    private final Map<Key, Entry> entries;
+    private final long ttlNanos;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public HistoryAnalysisCache(MeterRegistry meterRegistry,
+                                @Value("${history.analysis.cache.max-entries:1000}") int maxEntries,
+                                @Value("${history.analysis.cache.ttl:30s}") Duration ttl) {
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.ttlNanos = ttl.toNanos();
+        this.hitCounter = Counter.builder("history.analysis.cache")
+                .description("分析結果キャッシュの参照結果")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("history.analysis.cache")
+                .description("分析結果キャッシュの参照結果")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("history.analysis.cache.size", this, HistoryAnalysisCache::size)
+                .description("分析結果キャッシュの件数")
+                .register(meterRegistry);
+    }
+
+    private record Key(String role, String query) {
+    }
+
+    // createdAt は計算を始めた時刻（System.nanoTime）
+    private record Entry(CompletableFuture<Object> future, long createdAt) {
+    }
+
+    /**
+     * キャッシュ済みの結果、なければ loader で計算した結果（同じキーの同時呼び出しは計算を待ち合わせる）
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String role, String query, Supplier<T> loader) {
+        CompletableFuture<Object> future;
+        boolean owner = false;
+        Key key;
+        synchronized (this) {
+            key = new Key(normalize(role), query);
+            long now = System.nanoTime();
+            Entry entry = entries.get(key);
+            if (entry == null || now - entry.createdAt() >= ttlNanos) {
+                entry = new Entry(new CompletableFuture<>(), now);
+                entries.put(key, entry);
+                owner = true;
+            }
+            future = entry.future();
+        }
+
+        if (!owner) {
+            hitCounter.increment();
+            try {
+                return (T) future.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        missCounter.increment();
+        try {
+            T value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                Entry entry = entries.get(key);
+                if (entry != null && entry.future() == future) {
+                    entries.remove(key);
+                }
+            }
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * role の結果を現在のトランザクションのコミット後に無効化する
+     */
+    public void invalidateAfterCommit(Collection<String> roles) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(roles);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(roles);
+            }
+        });
+    }
+
+    public synchronized void invalidate(Collection<String> roles) {
+        Set<String> normalized = new HashSet<>();
+        for (String role : roles) {
+            normalized.add(normalize(role));
+        }
+        entries.keySet().removeIf(key -> normalized.contains(key.role()));
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private static String normalize(String role) {
+        return role == null ? "" : role.toLowerCase(Locale.ROOT);
+    }
+}
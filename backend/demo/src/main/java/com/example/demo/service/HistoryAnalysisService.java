@@ -1,40 +1,139 @@
 package com.example.demo.service;
 
-import com.example.demo.model.History;
+import com.example.demo.dto.DistinctUsersResponse;
+import com.example.demo.dto.LiveActivityResponse;
+import com.example.demo.dto.TopSubjectResponse;
+import com.example.demo.repository.HistoryHourlyRollupRepository;
 import com.example.demo.repository.HistoryRepository;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * 分析 API の集計。期間が時単位（または未指定）なら書き込み時に更新される history_hourly_rollup から、
+ * 時の途中で区切る期間なら history への GROUP BY（created_by, timestamp の索引で範囲走査）で返す。
+ * どちらも集計済みの値だけを DB から受け取り、結果は HistoryAnalysisCache に保持する（その role の書き込みで無効化）。
+ */
 @Service
 public class HistoryAnalysisService {
 
+    // 期間の指定がない側の境界（MySQL DATETIME の範囲内）
+    private static final LocalDateTime MIN_TIMESTAMP = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private final HistoryHourlyRollupRepository rollupRepository;
     private final HistoryRepository historyRepository;
+    private final HistoryActivityCounters activityCounters;
+    private final HistorySketchStore sketchStore;
+    private final HistoryColumnarSnapshot columnarSnapshot;
+    private final HistoryAnalysisCache analysisCache;
+
+    // 近似集計の期間を省略したときの日数
+    private static final int DEFAULT_SKETCH_DAYS = 30;
+    private static final int MAX_TOP_SUBJECTS = TopKSketch.CANDIDATES;
 
-    public HistoryAnalysisService(HistoryRepository historyRepository) {
+    public HistoryAnalysisService(HistoryHourlyRollupRepository rollupRepository,
+                                  HistoryRepository historyRepository,
+                                  HistoryActivityCounters activityCounters,
+                                  HistorySketchStore sketchStore,
+                                  HistoryColumnarSnapshot columnarSnapshot,
+                                  HistoryAnalysisCache analysisCache) {
+        this.rollupRepository = rollupRepository;
         this.historyRepository = historyRepository;
+        this.activityCounters = activityCounters;
+        this.sketchStore = sketchStore;
+        this.columnarSnapshot = columnarSnapshot;
+        this.analysisCache = analysisCache;
+    }
+
+    /**
+     * 職種ごとの action 件数を集計（from 以上 to 未満、null は制限なし）
+     */
+    public Map<String, Long> countActionsByRole(String role, LocalDateTime from, LocalDateTime to) {
+        return analysisCache.get(role, "actionsByRole|" + from + "|" + to, () -> computeActionsByRole(role, from, to));
+    }
+
+    /**
+     * 職種ごとの時間帯別 action 件数（from 以上 to 未満、null は制限なし）
+     */
+    public Map<Integer, Long> countActionsByHour(String role, LocalDateTime from, LocalDateTime to) {
+        return analysisCache.get(role, "actionsByHour|" + from + "|" + to, () -> computeActionsByHour(role, from, to));
+    }
+
+    private Map<String, Long> computeActionsByRole(String role, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = Optional.ofNullable(from).orElse(MIN_TIMESTAMP);
+        LocalDateTime end = Optional.ofNullable(to).orElse(MAX_TIMESTAMP);
+        if (isHourAligned(start) && isHourAligned(end)) {
+            return rollupRepository.countBySubjectBetween(role, start.toLocalDate(), start.getHour(),
+                            end.toLocalDate(), end.getHour()).stream()
+                    .collect(Collectors.toMap(HistoryHourlyRollupRepository.SubjectCount::getKey,
+                            HistoryHourlyRollupRepository.SubjectCount::getCount));
+        }
+        return historyRepository.countBySubject(role, start, end).stream()
+                .collect(Collectors.toMap(HistoryRepository.SubjectCount::getKey, HistoryRepository.SubjectCount::getCount));
+    }
+
+    private Map<Integer, Long> computeActionsByHour(String role, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = Optional.ofNullable(from).orElse(MIN_TIMESTAMP);
+        LocalDateTime end = Optional.ofNullable(to).orElse(MAX_TIMESTAMP);
+        if (isHourAligned(start) && isHourAligned(end)) {
+            return rollupRepository.countByHourBetween(role, start.toLocalDate(), start.getHour(),
+                            end.toLocalDate(), end.getHour()).stream()
+                    .collect(Collectors.toMap(HistoryHourlyRollupRepository.HourCount::getKey,
+                            HistoryHourlyRollupRepository.HourCount::getCount));
+        }
+        return historyRepository.countByHour(role, start, end).stream()
+                .collect(Collectors.toMap(HistoryRepository.HourCount::getKey, HistoryRepository.HourCount::getCount));
     }
 
     /**
-     * 職種ごとの action 件数を集計
+     * 直近 minutes 分の保存件数（プロセス内カウンタから。DB は参照しない）
      */
-    public Map<String, Long> countActionsByRole(String role) {
-        List<History> histories = historyRepository.findAll().stream()
-                .filter(h -> role.equalsIgnoreCase(h.getCreatedBy()))
+    public LiveActivityResponse getLiveActivity(String role, int minutes) {
+        long[] counts = activityCounters.perMinute(role, minutes);
+        return new LiveActivityResponse(role, counts.length, Arrays.stream(counts).sum(),
+                Arrays.stream(counts).boxed().collect(Collectors.toList()));
+    }
+
+    /**
+     * 期間 [from, to]（日単位、省略時は今日までの 30 日）の異なりユーザー数（HyperLogLog による推定）
+     */
+    public DistinctUsersResponse estimateDistinctUsers(LocalDate from, LocalDate to) {
+        LocalDate end = Optional.ofNullable(to).orElse(LocalDate.now());
+        LocalDate start = Optional.ofNullable(from).orElse(end.minusDays(DEFAULT_SKETCH_DAYS - 1));
+        return new DistinctUsersResponse(start.toString(), end.toString(), sketchStore.distinctUsers(start, end));
+    }
+
+    /**
+     * 職種ごとの頻出件名 上位 k 件（count-min sketch による推定）
+     */
+    public List<TopSubjectResponse> estimateTopSubjects(String role, LocalDate from, LocalDate to, int k) {
+        LocalDate end = Optional.ofNullable(to).orElse(LocalDate.now());
+        LocalDate start = Optional.ofNullable(from).orElse(end.minusDays(DEFAULT_SKETCH_DAYS - 1));
+        return sketchStore.topSubjects(role, start, end, Math.max(1, Math.min(k, MAX_TOP_SUBJECTS))).stream()
+                .map(entry -> new TopSubjectResponse(entry.key(), entry.estimate()))
                 .collect(Collectors.toList());
+    }
 
-        return histories.stream()
-                .collect(Collectors.groupingBy(History::getSubject, Collectors.counting()));
+    /**
+     * 列スナップショットの起動時読み込みが完了していれば true
+     */
+    public boolean isGroupByReady() {
+        return columnarSnapshot.isLoaded();
     }
 
     /**
-     * 職種ごとの時間帯別 action 件数
+     * メモリ上の列スナップショットを任意の軸で集計（role・期間 [from, to) は null で制限なし）
      */
-    public Map<Integer, Long> countActionsByHour(String role) {
-        return historyRepository.findAll().stream()
-                .filter(h -> role.equalsIgnoreCase(h.getCreatedBy()))
-                .map(h -> h.getTimestamp().getHour())
-                .collect(Collectors.groupingBy(hour -> hour, Collectors.counting()));
+    public Map<String, Long> groupBy(HistoryColumnarSnapshot.Dimension dimension, String role,
+                                     LocalDateTime from, LocalDateTime to) {
+        return columnarSnapshot.groupBy(dimension, role, from, to);
+    }
+
+    private static boolean isHourAligned(LocalDateTime timestamp) {
+        return timestamp.getMinute() == 0 && timestamp.getSecond() == 0 && timestamp.getNano() == 0;
     }
 }
@@ -0,0 +1,264 @@
+package com.example.demo.service;
+
+import com.example.demo.model.History;
+import com.example.demo.model.HistoryBodyDictionary;
+import com.example.demo.repository.HistoryBodyDictionaryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * history.body の圧縮保存（history.body.compression.enabled=true のとき）。
+ * <p>
+ * 本文は共有辞書（定型メールの頻出行）付きの raw deflate で history.body_compressed に保存し、body 列は NULL にする。
+ * 形式は「元の UTF-8 バイト長（可変長整数）+ deflate データ」。十分に縮まない本文はそのまま body 列に残す。
+ * 読み出しは常に {@link #read(History)} を通すので、無効化しても圧縮済みの行はそのまま読める。
+ * MySQL のストリーミング結果セットを開いている間は同じ接続で別のクエリを発行できないため、
+ * 行をストリームで読む前に {@link #loadDictionaries()} で辞書をすべてキャッシュしておくこと。
+ * 圧縮に使う最新の辞書は history.body.compression.dictionary-refresh ごとに読み直す（他ノードが学習した辞書、
+ * 起動時に辞書がなかった場合も、その間隔のうちに使い始める）。
+ */
+@Component
+public class HistoryBodyCodec {
+
+    // deflate の参照窓が 32KB なので、それより長い辞書は先頭が使われない
+    static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+    private static final int MIN_LINE_LENGTH = 4;
+    // 圧縮後がこの割合以上なら圧縮しない
+    private static final double MAX_RATIO = 0.9;
+
+    private final HistoryBodyDictionaryRepository dictionaryRepository;
+    private final boolean enabled;
+    private final Map<Long, byte[]> dictionaries = new ConcurrentHashMap<>();
+    private final long dictionaryRefreshNanos;
+    private volatile ActiveDictionary activeDictionary;
+
+    public HistoryBodyCodec(HistoryBodyDictionaryRepository dictionaryRepository,
+                            @Value("${history.body.compression.enabled:false}") boolean enabled,
+                            @Value("${history.body.compression.dictionary-refresh:PT5M}") Duration dictionaryRefresh) {
+        this.dictionaryRepository = dictionaryRepository;
+        this.enabled = enabled;
+        this.dictionaryRefreshNanos = dictionaryRefresh.toNanos();
+    }
+
+    // 最新の辞書（なければ empty）と読んだ時刻
+    private record ActiveDictionary(Optional<HistoryBodyDictionary> dictionary, long loadedAt) {
+    }
+
+    public record Compressed(byte[] data, Long dictionaryId) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String read(History history) {
+        return read(history.getBody(), history.getBodyCompressed(), history.getBodyDictionaryId());
+    }
+
+    public String read(String body, byte[] compressed, Long dictionaryId) {
+        if (compressed == null) {
+            return body;
+        }
+        return decompress(compressed, dictionaryId);
+    }
+
+    /**
+     * 本文を設定する。圧縮が有効で辞書があり、十分に縮む場合は圧縮列へ書く。
+     */
+    public void write(History history, String body) {
+        Optional<Compressed> compressed = enabled && body != null ? compress(body) : Optional.empty();
+        if (compressed.isPresent()) {
+            history.setBody(null);
+            history.setBodyCompressed(compressed.get().data());
+            history.setBodyDictionaryId(compressed.get().dictionaryId());
+        } else {
+            history.setBody(body);
+            history.setBodyCompressed(null);
+            history.setBodyDictionaryId(null);
+        }
+    }
+
+    /**
+     * 現在の辞書で圧縮する。辞書が未学習、または縮まない場合は empty。
+     */
+    public Optional<Compressed> compress(String body) {
+        HistoryBodyDictionary dictionary = activeDictionary().orElse(null);
+        if (dictionary == null) {
+            return Optional.empty();
+        }
+        byte[] plain = body.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(plain.length / 2 + 16);
+        writeVarInt(out, plain.length);
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setDictionary(dictionary.getDictionary());
+            deflater.setInput(plain);
+            deflater.finish();
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } finally {
+            deflater.end();
+        }
+        if (out.size() >= plain.length * MAX_RATIO) {
+            return Optional.empty();
+        }
+        return Optional.of(new Compressed(out.toByteArray(), dictionary.getId()));
+    }
+
+    public Optional<HistoryBodyDictionary> activeDictionary() {
+        ActiveDictionary active = activeDictionary;
+        long now = System.nanoTime();
+        if (active == null || now - active.loadedAt() >= dictionaryRefreshNanos) {
+            Optional<HistoryBodyDictionary> dictionary = dictionaryRepository.findFirstByOrderByIdDesc();
+            dictionary.ifPresent(d -> dictionaries.put(d.getId(), d.getDictionary()));
+            active = new ActiveDictionary(dictionary, now);
+            activeDictionary = active;
+        }
+        return active.dictionary();
+    }
+
+    /**
+     * まだキャッシュにない辞書を読み込む（ストリームを開く前に呼ぶ。以降の読み出しは DB に問い合わせない）
+     */
+    public void loadDictionaries() {
+        List<Long> missing = new ArrayList<>();
+        for (Long id : dictionaryRepository.findAllIds()) {
+            if (!dictionaries.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (HistoryBodyDictionary dictionary : dictionaryRepository.findAllById(missing)) {
+                dictionaries.put(dictionary.getId(), dictionary.getDictionary());
+            }
+        }
+    }
+
+    /**
+     * 学習した辞書を保存し、以降の圧縮に使う
+     */
+    public HistoryBodyDictionary activate(byte[] dictionary, int sampleCount) {
+        HistoryBodyDictionary saved = dictionaryRepository.save(new HistoryBodyDictionary(null, dictionary, sampleCount, LocalDateTime.now()));
+        dictionaries.put(saved.getId(), saved.getDictionary());
+        activeDictionary = new ActiveDictionary(Optional.of(saved), System.nanoTime());
+        return saved;
+    }
+
+    /**
+     * 複数の本文に現れる行を「出現文書数 × バイト長」の大きい順に集めた辞書。
+     * deflate は近い位置の一致ほど短く符号化するので、価値の高い行ほど末尾に置く。
+     */
+    static byte[] trainDictionary(List<String> samples) {
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (String sample : samples) {
+            Set<String> seen = new HashSet<>();
+            for (String line : sample.split("\n")) {
+                if (line.strip().length() >= MIN_LINE_LENGTH && seen.add(line)) {
+                    documentFrequency.merge(line, 1, Integer::sum);
+                }
+            }
+        }
+
+        List<Map.Entry<String, Integer>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : documentFrequency.entrySet()) {
+            if (entry.getValue() >= 2) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Comparator.comparingLong((Map.Entry<String, Integer> e) ->
+                (long) e.getValue() * e.getKey().getBytes(StandardCharsets.UTF_8).length).reversed());
+
+        List<byte[]> selected = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> candidate : candidates) {
+            byte[] line = (candidate.getKey() + "\n").getBytes(StandardCharsets.UTF_8);
+            if (size + line.length > MAX_DICTIONARY_SIZE) {
+                continue;
+            }
+            selected.add(line);
+            size += line.length;
+        }
+
+        byte[] dictionary = new byte[size];
+        int position = 0;
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            byte[] line = selected.get(i);
+            System.arraycopy(line, 0, dictionary, position, line.length);
+            position += line.length;
+        }
+        return dictionary;
+    }
+
+    private String decompress(byte[] compressed, Long dictionaryId) {
+        int[] position = {0};
+        int length = readVarInt(compressed, position);
+        byte[] plain = new byte[length];
+
+        Inflater inflater = new Inflater(true);
+        try {
+            if (dictionaryId != null) {
+                inflater.setDictionary(dictionary(dictionaryId));
+            }
+            inflater.setInput(compressed, position[0], compressed.length - position[0]);
+            int inflated = 0;
+            while (inflated < length) {
+                int count = inflater.inflate(plain, inflated, length - inflated);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Truncated compressed history body");
+                }
+                inflated += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed history body", e);
+        } finally {
+            inflater.end();
+        }
+        return new String(plain, StandardCharsets.UTF_8);
+    }
+
+    private byte[] dictionary(Long dictionaryId) {
+        return dictionaries.computeIfAbsent(dictionaryId, id -> dictionaryRepository.findById(id)
+                .map(HistoryBodyDictionary::getDictionary)
+                .orElseThrow(() -> new IllegalStateException("History body dictionary not found: " + id)));
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.HistoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 未圧縮の既存 history.body を定期的に圧縮列へ移す（history.body.compression.enabled=true のとき）。
+ * <p>
+ * 辞書がなければ最近の本文から学習してから始める。行は id 順に 1 チャンクずつ処理し、
+ * 読み込み後に更新された行（updated_at が変わった行）は書き換えない。
+ * 本文の内容は変わらないので updated_at は進めない（差分同期の対象にしない）。
+ */
+@Component
+public class HistoryBodyRecompressor {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryBodyRecompressor.class);
+
+    private static final String UPDATE_BODY = "UPDATE history SET body = NULL, body_compressed = ?, body_dictionary_id = ? " +
+            "WHERE id = ? AND body IS NOT NULL AND updated_at <=> ?";
+
+    private final HistoryRepository historyRepository;
+    private final HistoryBodyCodec bodyCodec;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxRowsPerRun;
+    private final int trainingSamples;
+    private final int minTrainingSamples;
+
+    // 処理済みの位置（新しい行は id が大きいので、戻らずに追いかけるだけでよい）
+    private long lastId;
+
+    public HistoryBodyRecompressor(HistoryRepository historyRepository,
+                                   HistoryBodyCodec bodyCodec,
+                                   JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${history.body.compression.chunk-size:200}") int chunkSize,
+                                   @Value("${history.body.compression.max-rows-per-run:10000}") int maxRowsPerRun,
+                                   @Value("${history.body.compression.training-samples:2000}") int trainingSamples,
+                                   @Value("${history.body.compression.min-training-samples:50}") int minTrainingSamples) {
+        this.historyRepository = historyRepository;
+        this.bodyCodec = bodyCodec;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.maxRowsPerRun = maxRowsPerRun;
+        this.trainingSamples = trainingSamples;
+        this.minTrainingSamples = minTrainingSamples;
+    }
+
+    @Scheduled(initialDelayString = "${history.body.compression.initial-delay:PT1M}",
+            fixedDelayString = "${history.body.compression.interval:PT10M}")
+    public void recompress() {
+        if (!bodyCodec.isEnabled()) {
+            return;
+        }
+        try {
+            if (bodyCodec.activeDictionary().isEmpty() && !trainDictionary()) {
+                return;
+            }
+            int scanned = 0;
+            int compressed = 0;
+            while (scanned < maxRowsPerRun) {
+                List<HistoryRepository.PlainBodyView> rows =
+                        historyRepository.findPlainBodiesAfter(lastId, PageRequest.of(0, chunkSize));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                compressed += compressChunk(rows);
+                scanned += rows.size();
+                lastId = rows.get(rows.size() - 1).getId();
+            }
+            if (compressed > 0) {
+                log.info("Compressed {} of {} history bodies", compressed, scanned);
+            }
+        } catch (Exception e) {
+            log.error("History body recompression failed", e);
+        }
+    }
+
+    private boolean trainDictionary() {
+        List<String> samples = historyRepository.findRecentPlainBodies(PageRequest.of(0, trainingSamples));
+        if (samples.size() < minTrainingSamples) {
+            return false;
+        }
+        byte[] dictionary = HistoryBodyCodec.trainDictionary(samples);
+        if (dictionary.length == 0) {
+            return false;
+        }
+        Long id = bodyCodec.activate(dictionary, samples.size()).getId();
+        log.info("Trained history body dictionary {} ({} bytes from {} bodies)", id, dictionary.length, samples.size());
+        return true;
+    }
+
+    private int compressChunk(List<HistoryRepository.PlainBodyView> rows) {
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (HistoryRepository.PlainBodyView row : rows) {
+            Optional<HistoryBodyCodec.Compressed> compressed = bodyCodec.compress(row.getBody());
+            compressed.ifPresent(c -> updates.add(new Object[]{c.data(), c.dictionaryId(), row.getId(),
+                    row.getUpdatedAt() != null ? Timestamp.valueOf(row.getUpdatedAt()) : null}));
+        }
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_BODY, updates));
+        return updates.size();
+    }
+}
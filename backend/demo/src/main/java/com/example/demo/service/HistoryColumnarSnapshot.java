@@ -0,0 +1,408 @@
+package com.example.demo.service;
+
+import com.example.demo.config.DataMigrationsCompletedEvent;
+import com.example.demo.repository.HistoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * history のメタデータ（本文以外）を列ごとのプリミティブ配列で持つ分析用スナップショット。
+ * <p>
+ * 発生時刻はローカル日時を UTC とみなした epoch 秒（時・曜日を割り算だけで求めるため）、
+ * created_by と件名は辞書番号、重複フラグと生存行は BitSet で持つ。更新は行の上書き、削除は生存ビットを落とす。
+ * 集計は行範囲を分割して fork-join で並列に走査し、グループごとの件数配列を足し合わせる。
+ * 起動時にバックグラウンドで DB から読み込み、以降は保存・更新・削除・重複判定のコミット後に反映する。
+ * 読み込みに失敗したときは間隔を倍にしながら（上限 retry-max-delay）成功するまでやり直し、直近の失敗は health に出す。
+ */
+@Component
+public class HistoryColumnarSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryColumnarSnapshot.class);
+
+    // これ未満の行数は分割せずに走査する
+    private static final int SCAN_THRESHOLD = 1 << 14;
+    private static final int SECONDS_PER_DAY = 86_400;
+
+    public enum Dimension {
+        HOUR, WEEKDAY, CREATED_BY, SUBJECT, DUPLICATE
+    }
+
+    private final HistoryRepository historyRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> rowByHistoryId = new HashMap<>();
+    private final Map<String, Integer> userCodes = new HashMap<>();
+    private final List<String> users = new ArrayList<>();
+    private final Map<String, Integer> subjectCodes = new HashMap<>();
+    private final List<String> subjects = new ArrayList<>();
+    private long[] epochSeconds = new long[1024];
+    private int[] userColumn = new int[1024];
+    private int[] subjectColumn = new int[1024];
+    private final BitSet duplicate = new BitSet();
+    private final BitSet live = new BitSet();
+    private int rowCount;
+
+    // 読み込み中に差分反映された ID（読み込み側の古い値で上書きしない）
+    private final Set<Long> touchedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading;
+    // 起動時の読み込みが完了するまでは集計しない（一部の行だけの件数を返さないため）
+    private volatile boolean loaded;
+    private final Duration retryInitialDelay;
+    private final Duration retryMaxDelay;
+    // 直近の読み込み失敗（成功したら null に戻す）
+    private volatile String lastLoadError;
+    private volatile int failedLoadAttempts;
+
+    public HistoryColumnarSnapshot(HistoryRepository historyRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${history.analysis.columnar.retry-initial-delay:PT5S}") Duration retryInitialDelay,
+                                   @Value("${history.analysis.columnar.retry-max-delay:PT5M}") Duration retryMaxDelay) {
+        this.historyRepository = historyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.retryInitialDelay = retryInitialDelay;
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    /**
+     * 保存・更新された行を反映する（トランザクション中ならコミット後）
+     */
+    public void putAfterCommit(Long historyId, String createdBy, String subject, LocalDateTime timestamp, boolean isDuplicate) {
+        afterCommit(historyId, () -> put(historyId, createdBy, subject, timestamp, isDuplicate));
+    }
+
+    public void removeAfterCommit(Long historyId) {
+        afterCommit(historyId, () -> {
+            lock.writeLock().lock();
+            try {
+                Integer row = rowByHistoryId.remove(historyId);
+                if (row != null) {
+                    live.clear(row);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * 非同期の重複判定結果を反映する
+     */
+    public void markDuplicateAfterCommit(Long historyId, boolean isDuplicate) {
+        afterCommit(historyId, () -> {
+            lock.writeLock().lock();
+            try {
+                Integer row = rowByHistoryId.get(historyId);
+                if (row != null) {
+                    duplicate.set(row, isDuplicate);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public String getLastLoadError() {
+        return lastLoadError;
+    }
+
+    public int getFailedLoadAttempts() {
+        return failedLoadAttempts;
+    }
+
+    /**
+     * dimension ごとの件数。role（created_by、大文字小文字は区別しない）と期間 [from, to) は null で制限なし。
+     * 時・曜日は固定順、それ以外は件数の多い順。
+     */
+    public Map<String, Long> groupBy(Dimension dimension, String role, LocalDateTime from, LocalDateTime to) {
+        long start = from != null ? from.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+        long end = to != null ? to.toEpochSecond(ZoneOffset.UTC) : Long.MAX_VALUE;
+        lock.readLock().lock();
+        try {
+            int userFilter = -1;
+            if (role != null) {
+                Integer code = userCodes.get(role.toLowerCase(Locale.ROOT));
+                if (code == null) {
+                    return Map.of();
+                }
+                userFilter = code;
+            }
+            int groups = switch (dimension) {
+                case HOUR -> 24;
+                case WEEKDAY -> 7;
+                case CREATED_BY -> users.size();
+                case SUBJECT -> subjects.size();
+                case DUPLICATE -> 2;
+            };
+            long[] counts = ForkJoinPool.commonPool().invoke(
+                    new ScanTask(dimension, groups, userFilter, start, end, 0, rowCount));
+            return label(dimension, counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(DataMigrationsCompletedEvent.class)
+    public void loadInBackground() {
+        Thread thread = new Thread(this::load, "history-columnar-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 成功するまで読み込みをやり直す。やり直しの間も loading のままにして差分反映された ID を記録し続けるので、
+     * 前回の途中までに読んだ行も次の読み込みで古い値に戻らない。
+     */
+    private void load() {
+        loading = true;
+        try {
+            long delay = retryInitialDelay.toMillis();
+            while (true) {
+                try {
+                    loadOnce();
+                    return;
+                } catch (Exception e) {
+                    lastLoadError = e.toString();
+                    failedLoadAttempts++;
+                    log.error("History columnar snapshot load failed (attempt {}), retrying in {} ms",
+                            failedLoadAttempts, delay, e);
+                }
+                Thread.sleep(delay);
+                delay = Math.min(delay * 2, retryMaxDelay.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            loading = false;
+            touchedDuringLoad.clear();
+        }
+    }
+
+    private void loadOnce() {
+        long start = System.nanoTime();
+        long[] loaded = new long[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<HistoryRepository.SnapshotRowView> rows = historyRepository.streamSnapshotRows()) {
+                rows.forEach(row -> {
+                    if (putLoaded(row)) {
+                        loaded[0]++;
+                    }
+                });
+            }
+        });
+        lastLoadError = null;
+        this.loaded = true;
+        log.info("History columnar snapshot loaded: {} rows in {} ms",
+                loaded[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 読み込んだ行を反映する。差分反映（削除を含む）と同じ書き込みロックの中で確認するので、
+     * 確認と反映の間に削除されて古い行が復活することはない。
+     */
+    private boolean putLoaded(HistoryRepository.SnapshotRowView row) {
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringLoad.contains(row.getId())) {
+                return false;
+            }
+            put(row.getId(), row.getCreatedBy(), row.getSubject(), row.getTimestamp(),
+                    Boolean.TRUE.equals(row.getDuplicate()));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Long historyId, String createdBy, String subject, LocalDateTime timestamp, boolean isDuplicate) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = rowByHistoryId.get(historyId);
+            int row;
+            if (existing != null) {
+                row = existing;
+            } else {
+                row = rowCount++;
+                if (row == epochSeconds.length) {
+                    int capacity = row * 2;
+                    epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+                    userColumn = Arrays.copyOf(userColumn, capacity);
+                    subjectColumn = Arrays.copyOf(subjectColumn, capacity);
+                }
+                rowByHistoryId.put(historyId, row);
+            }
+            epochSeconds[row] = timestamp != null ? timestamp.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+            String user = createdBy != null ? createdBy : "";
+            userColumn[row] = code(userCodes, users, user.toLowerCase(Locale.ROOT), user);
+            String subjectValue = subject != null ? subject : "";
+            subjectColumn[row] = code(subjectCodes, subjects, subjectValue, subjectValue);
+            duplicate.set(row, isDuplicate);
+            live.set(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 辞書番号。表示名は最初に現れた表記
+    private static int code(Map<String, Integer> codes, List<String> labels, String key, String label) {
+        Integer code = codes.get(key);
+        if (code == null) {
+            code = labels.size();
+            codes.put(key, code);
+            labels.add(label);
+        }
+        return code;
+    }
+
+    private Map<String, Long> label(Dimension dimension, long[] counts) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        switch (dimension) {
+            case HOUR -> {
+                for (int hour = 0; hour < counts.length; hour++) {
+                    if (counts[hour] > 0) {
+                        result.put(String.valueOf(hour), counts[hour]);
+                    }
+                }
+            }
+            case WEEKDAY -> {
+                for (int day = 0; day < counts.length; day++) {
+                    if (counts[day] > 0) {
+                        result.put(DayOfWeek.of(day + 1).name(), counts[day]);
+                    }
+                }
+            }
+            case DUPLICATE -> {
+                if (counts[0] > 0) {
+                    result.put("false", counts[0]);
+                }
+                if (counts[1] > 0) {
+                    result.put("true", counts[1]);
+                }
+            }
+            case CREATED_BY, SUBJECT -> {
+                List<String> names = dimension == Dimension.CREATED_BY ? users : subjects;
+                Integer[] order = new Integer[counts.length];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, (a, b) -> Long.compare(counts[b], counts[a]));
+                for (int code : order) {
+                    if (counts[code] > 0) {
+                        result.put(names.get(code), counts[code]);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // 読み込み中は ID を記録してから反映する（反映前に記録されるので、読み込み側は書き込みロック内の確認で必ず気付く）
+    private void afterCommit(Long historyId, Runnable action) {
+        Runnable tracked = () -> {
+            if (loading) {
+                touchedDuringLoad.add(historyId);
+            }
+            action.run();
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tracked.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tracked.run();
+            }
+        });
+    }
+
+    /**
+     * 行範囲 [from, to) のグループ別件数。読み取りロックは呼び出し元のスレッドが保持している。
+     */
+    private final class ScanTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final Dimension dimension;
+        private final int groups;
+        private final int userFilter;
+        private final long start;
+        private final long end;
+        private final int from;
+        private final int to;
+
+        ScanTask(Dimension dimension, int groups, int userFilter, long start, long end, int from, int to) {
+            this.dimension = dimension;
+            this.groups = groups;
+            this.userFilter = userFilter;
+            this.start = start;
+            this.end = end;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > SCAN_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(dimension, groups, userFilter, start, end, from, middle);
+                left.fork();
+                long[] right = new ScanTask(dimension, groups, userFilter, start, end, middle, to).compute();
+                long[] counts = left.join();
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] += right[i];
+                }
+                return counts;
+            }
+
+            long[] counts = new long[groups];
+            for (int row = live.nextSetBit(from); row >= 0 && row < to; row = live.nextSetBit(row + 1)) {
+                if (userFilter >= 0 && userColumn[row] != userFilter) {
+                    continue;
+                }
+                long seconds = epochSeconds[row];
+                if (seconds < start || seconds >= end || seconds == Long.MIN_VALUE) {
+                    continue;
+                }
+                int group = switch (dimension) {
+                    case HOUR -> Math.floorMod(seconds, SECONDS_PER_DAY) / 3600;
+                    // 1970-01-01 は木曜日（月曜日 = 0）
+                    case WEEKDAY -> Math.floorMod(Math.floorDiv(seconds, SECONDS_PER_DAY) + 3, 7);
+                    case CREATED_BY -> userColumn[row];
+                    case SUBJECT -> subjectColumn[row];
+                    case DUPLICATE -> duplicate.get(row) ? 1 : 0;
+                };
+                counts[group]++;
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.demo.service;
+
+import com.example.demo.config.DataMigrationsCompletedEvent;
+import com.example.demo.model.DedupStatus;
+import com.example.demo.repository.HistoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 保存済み（dedup_status = PENDING）の履歴を別スレッドで重複判定する。
+ * <p>
+ * history.dedup.async.enabled=true のとき HistoryService は判定を待たずに保存し、コミット後にここへ ID を渡す。
+ * キューは有界で、溢れた場合は PENDING のまま残し、history.dedup.async.sweep-interval ごとの巡回で
+ * 未判定の行を ID 順にページングして空きの分だけ再投入する（起動時に残っていた行もこの巡回で拾う）。
+ * 判定は呼び出し元のトランザクションに加わらないよう、常に新しいトランザクションで行う。
+ */
+@Component
+public class HistoryDedupWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryDedupWorker.class);
+
+    private final HistoryRepository historyRepository;
+    private final DuplicateDetector duplicateDetector;
+    private final TransactionTemplate transactionTemplate;
+    private final int sweepPageSize;
+    private final HistoryColumnarSnapshot columnarSnapshot;
+    private final boolean enabled;
+    private final ThreadPoolExecutor executor;
+    private final Timer lagTimer;
+    private final Counter duplicateCounter;
+
+    // キュー投入済みで判定が終わっていない行（巡回で重ねて投入しない）
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    // マイグレーション完了までは巡回しない
+    private volatile boolean started;
+
+    public HistoryDedupWorker(HistoryRepository historyRepository,
+                              DuplicateDetector duplicateDetector,
+                              PlatformTransactionManager transactionManager,
+                              HistoryColumnarSnapshot columnarSnapshot,
+                              MeterRegistry meterRegistry,
+                              @Value("${history.dedup.async.enabled:false}") boolean enabled,
+                              @Value("${history.dedup.async.workers:2}") int workers,
+                              @Value("${history.dedup.async.queue-capacity:1000}") int queueCapacity,
+                              @Value("${history.dedup.async.sweep-page-size:500}") int sweepPageSize) {
+        this.historyRepository = historyRepository;
+        this.duplicateDetector = duplicateDetector;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.sweepPageSize = sweepPageSize;
+        this.columnarSnapshot = columnarSnapshot;
+        this.enabled = enabled;
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "history-dedup-" + threadNo.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("history.dedup.queue.depth", executor, e -> e.getQueue().size())
+                .description("重複判定待ちの件数")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("history.dedup.lag")
+                .description("保存から重複判定完了までの時間")
+                .register(meterRegistry);
+        this.duplicateCounter = Counter.builder("history.dedup.duplicates")
+                .description("非同期判定で重複と判定された件数")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 現在のトランザクションのコミット後に判定を投入する（未コミットの行をワーカーが読まないように）
+     */
+    public void submitAfterCommit(Long historyId) {
+        long enqueuedAt = System.nanoTime();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(historyId, enqueuedAt);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(historyId, enqueuedAt);
+            }
+        });
+    }
+
+    @EventListener(DataMigrationsCompletedEvent.class)
+    public void start() {
+        started = true;
+    }
+
+    /**
+     * 未判定（PENDING）の行をキューの空きの分だけ投入する。溢れて投入できなかった行や、再起動前に残った行を拾う。
+     */
+    @Scheduled(fixedDelayString = "${history.dedup.async.sweep-interval:PT30S}")
+    public void sweepPending() {
+        if (!started) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            long afterId = 0;
+            int submitted = 0;
+            while (executor.getQueue().remainingCapacity() > 0) {
+                List<Long> ids = historyRepository.findIdsByDedupStatusAfter(DedupStatus.PENDING, afterId,
+                        PageRequest.of(0, sweepPageSize));
+                for (Long id : ids) {
+                    if (queued.contains(id)) {
+                        continue;
+                    }
+                    if (!submit(id, now)) {
+                        break;
+                    }
+                    submitted++;
+                }
+                if (ids.size() < sweepPageSize) {
+                    break;
+                }
+                afterId = ids.get(ids.size() - 1);
+            }
+            if (submitted > 0) {
+                log.info("Resubmitted {} pending history rows for duplicate scoring", submitted);
+            }
+        } catch (Exception e) {
+            log.error("Pending duplicate scoring sweep failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // キューが満杯なら false（PENDING のまま残し、巡回で再投入する）
+    private boolean submit(Long historyId, long enqueuedAt) {
+        if (!queued.add(historyId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    score(historyId);
+                    lagTimer.record(Duration.ofNanos(System.nanoTime() - enqueuedAt));
+                } catch (Exception e) {
+                    // PENDING のまま残るので次の巡回で再判定される
+                    log.error("Duplicate scoring failed for history {}", historyId, e);
+                } finally {
+                    queued.remove(historyId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.remove(historyId);
+            return false;
+        }
+    }
+
+    private void score(Long historyId) {
+        transactionTemplate.executeWithoutResult(status ->
+                historyRepository.findFingerprintById(historyId)
+                        .filter(view -> view.getDedupStatus() == DedupStatus.PENDING)
+                        .ifPresent(view -> {
+                            HistoryFingerprint fingerprint = HistoryFingerprint.fromStored(view.getShingles(), view.getSimHash());
+                            DuplicateMatch match = duplicateDetector.findDuplicate(fingerprint, historyId).orElse(null);
+                            if (match != null) {
+                                duplicateCounter.increment();
+                            }
+                            historyRepository.markDedupDone(historyId,
+                                    match != null,
+                                    match != null ? match.score() : null,
+                                    match != null ? match.historyId() : null,
+                                    LocalDateTime.now());
+                            columnarSnapshot.markDuplicateAfterCommit(historyId, match != null);
+                        }));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.service;
+
+import com.example.demo.model.HistoryBand;
+import com.example.demo.repository.HistoryBandRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * MinHash の LSH バンドキー → history ID の索引（history_band テーブル）。
+ * 呼び出し元のトランザクション内で history と同時に書き込むため、再起動後や複数ノード間でも一貫する。
+ */
+@Component
+@RequiredArgsConstructor
+@Transactional
+public class HistoryDuplicateIndex {
+
+    private final HistoryBandRepository historyBandRepository;
+
+    /**
+     * いずれかのバンドキーを共有する履歴 ID（類似度 0.8 を超える候補）
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> findCandidates(long[] bandKeys) {
+        List<Long> keys = new ArrayList<>(bandKeys.length);
+        for (long key : bandKeys) {
+            keys.add(key);
+        }
+        return new HashSet<>(historyBandRepository.findHistoryIdsByBandKeyIn(keys));
+    }
+
+    /**
+     * 新規行のバンドを登録
+     */
+    public void add(Long historyId, long[] keys) {
+        List<HistoryBand> bands = new ArrayList<>(keys.length);
+        for (int band = 0; band < keys.length; band++) {
+            bands.add(new HistoryBand(historyId, band, keys[band]));
+        }
+        historyBandRepository.saveAll(bands);
+    }
+
+    /**
+     * 本文更新時にバンドを張り替える
+     */
+    public void put(Long historyId, long[] keys) {
+        historyBandRepository.deleteByHistoryId(historyId);
+        add(historyId, keys);
+    }
+
+    public void remove(Long historyId) {
+        historyBandRepository.deleteByHistoryId(historyId);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.HistoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * 正規化済み本文のハッシュ（history.content_hash）による完全一致の重複判定。
+ * 索引 1 回の参照で済むので、あいまい判定（DuplicateDetector）より先に行う。
+ * history.dedup.exact{result=hit|miss} でヒット率を確認できる。
+ */
+@Component
+public class HistoryExactDuplicateLookup {
+
+    private final HistoryRepository historyRepository;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public HistoryExactDuplicateLookup(HistoryRepository historyRepository, MeterRegistry meterRegistry) {
+        this.historyRepository = historyRepository;
+        this.hitCounter = Counter.builder("history.dedup.exact")
+                .description("完全一致による重複判定の結果")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("history.dedup.exact")
+                .description("完全一致による重複判定の結果")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 同じ本文を持つ最古の履歴（あれば類似度 1.0 の重複）
+     */
+    public Optional<DuplicateMatch> findDuplicate(byte[] contentHash) {
+        Optional<Long> original = historyRepository.findFirstIdByContentHash(contentHash);
+        (original.isPresent() ? hitCounter : missCounter).increment();
+        return original.map(id -> new DuplicateMatch(id, 1.0));
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.service;
+
+import com.example.demo.model.History;
+
+/**
+ * 本文から一度だけ計算する重複判定用の値一式。保存時に {@link #applyTo(History)} で History に書き込む。
+ */
+public record HistoryFingerprint(int[] tokens, long[] bandKeys, long simHash, byte[] contentHash) {
+
+    public static HistoryFingerprint of(String body) {
+        int[] tokens = SimilarityKernel.tokenize(body);
+        return new HistoryFingerprint(tokens, MinHash.bandKeys(tokens), SimHash.fingerprint(tokens),
+                SimilarityKernel.contentHash(body));
+    }
+
+    /**
+     * 保存済みのフィンガープリント列から復元する（本文の再トークン化はしない。contentHash は持たない）
+     */
+    public static HistoryFingerprint fromStored(byte[] shingles, long simHash) {
+        int[] tokens = SimilarityKernel.decode(shingles);
+        return new HistoryFingerprint(tokens, MinHash.bandKeys(tokens), simHash, null);
+    }
+
+    public void applyTo(History history) {
+        history.setShingles(SimilarityKernel.encode(tokens));
+        history.setSimHash(simHash);
+        history.setSimHashBlock0(SimHash.block(simHash, 0));
+        history.setSimHashBlock1(SimHash.block(simHash, 1));
+        history.setSimHashBlock2(SimHash.block(simHash, 2));
+        history.setSimHashBlock3(SimHash.block(simHash, 3));
+        if (contentHash != null) {
+            history.setContentHash(contentHash);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BulkImportResponse;
+import com.example.demo.dto.SaveHistoryRequest;
+import com.example.demo.model.DedupStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 履歴の一括取り込み。入力（JSON 配列または NDJSON）を逐次読みし、チャンク単位で
+ * 「既存行との一括照合 + チャンク内照合 → JDBC バッチ INSERT」を 1 トランザクションで行う。
+ * <p>
+ * ID は既存の AUTO_INCREMENT のまま、バッチ INSERT の生成キーで受け取る（rewriteBatchedStatements で複数行 INSERT になる）。
+ * 前のチャンクはコミット済みなので、後続チャンクからは通常の索引検索で見つかる。
+ */
+@Service
+public class HistoryImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryImportService.class);
+
+    private static final String INSERT_HISTORY = "INSERT INTO history (subject, body, timestamp, created_by, duplicate, " +
+            "similarity_score, duplicate_of_id, dedup_status, shingles, sim_hash, " +
+            "sim_hash_block0, sim_hash_block1, sim_hash_block2, sim_hash_block3, updated_at, content_hash) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_BAND = "INSERT INTO history_band (history_id, band_no, band_key) VALUES (?, ?, ?)";
+
+    private static final String UPDATE_DUPLICATE_OF = "UPDATE history SET duplicate_of_id = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DuplicateDetector duplicateDetector;
+    private final HistorySearchIndex searchIndex;
+    private final HistoryActivityRollup activityRollup;
+    private final HistoryActivityCounters activityCounters;
+    private final HistorySketchStore sketchStore;
+    private final HistoryColumnarSnapshot columnarSnapshot;
+    private final HistoryAnalysisCache analysisCache;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public HistoryImportService(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                DuplicateDetector duplicateDetector,
+                                HistorySearchIndex searchIndex,
+                                HistoryActivityRollup activityRollup,
+                                HistoryActivityCounters activityCounters,
+                                HistorySketchStore sketchStore,
+                                HistoryColumnarSnapshot columnarSnapshot,
+                                HistoryAnalysisCache analysisCache,
+                                ObjectMapper objectMapper,
+                                @Value("${history.import.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.duplicateDetector = duplicateDetector;
+        this.searchIndex = searchIndex;
+        this.activityRollup = activityRollup;
+        this.activityCounters = activityCounters;
+        this.sketchStore = sketchStore;
+        this.columnarSnapshot = columnarSnapshot;
+        this.analysisCache = analysisCache;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * チャンクごとにコミットするので、途中で失敗してもそれまでのチャンクは保存されたまま残る（冪等ではない）。
+     * 入力の誤り（JSON・日時）や書き込みの失敗ではそこで止め、保存済みの件数と error を返す。
+     * 先頭から imported 件は保存済みなので、再送するときは imported 件目（0 始まり）から送る。
+     */
+    public BulkImportResponse importHistory(InputStream input) throws IOException {
+        long start = System.nanoTime();
+        long imported = 0;
+        long duplicates = 0;
+        long read = 0;
+        String error = null;
+        Long failedRecord = null;
+
+        try (MappingIterator<SaveHistoryRequest> requests = objectMapper.readerFor(SaveHistoryRequest.class).readValues(input)) {
+            List<ImportRow> chunk = new ArrayList<>(chunkSize);
+            while (requests.hasNextValue()) {
+                chunk.add(toRow(requests.nextValue()));
+                read++;
+                if (chunk.size() == chunkSize) {
+                    duplicates += writeChunk(chunk);
+                    imported += chunk.size();
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                duplicates += writeChunk(chunk);
+                imported += chunk.size();
+            }
+        } catch (JsonProcessingException | DateTimeParseException e) {
+            // 読み込み中のチャンクは書き込んでいない
+            error = e.getMessage();
+            failedRecord = read;
+            log.warn("History import stopped at record {} ({} rows already imported): {}", read, imported, error);
+        } catch (DataAccessException e) {
+            error = "書き込みに失敗しました: " + e.getMostSpecificCause().getMessage();
+            log.error("History import failed after {} rows", imported, e);
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        double rowsPerSecond = elapsedMillis > 0 ? imported * 1000.0 / elapsedMillis : imported;
+        log.info("Imported {} history rows ({} duplicates) in {} ms ({} rows/s)",
+                imported, duplicates, elapsedMillis, String.format("%.1f", rowsPerSecond));
+        return new BulkImportResponse(imported, duplicates, elapsedMillis, rowsPerSecond, error, failedRecord);
+    }
+
+    private ImportRow toRow(SaveHistoryRequest request) {
+        ImportRow row = new ImportRow();
+        row.subject = request.getSubject();
+        row.body = request.getBody();
+        row.timestamp = Optional.ofNullable(request.getTimestamp())
+                .map(HistoryService::parseTimestamp)
+                .orElse(LocalDateTime.now());
+        row.createdBy = Optional.ofNullable(request.getUser()).orElse("anonymous");
+        row.fingerprint = request.getBody() != null ? HistoryFingerprint.of(request.getBody()) : null;
+        return row;
+    }
+
+    private int writeChunk(List<ImportRow> chunk) {
+        Integer duplicates = transactionTemplate.execute(status -> {
+            int found = scoreChunk(chunk);
+            insertRows(chunk);
+            insertBands(chunk);
+            linkChunkDuplicates(chunk);
+            activityRollup.addAll(chunk.stream()
+                    .map(row -> HistoryActivityRollup.Key.of(row.createdBy, row.timestamp, row.subject))
+                    .flatMap(Optional::stream)
+                    .collect(Collectors.groupingBy(key -> key, Collectors.counting())));
+            analysisCache.invalidateAfterCommit(chunk.stream().map(row -> row.createdBy).distinct().toList());
+            for (ImportRow row : chunk) {
+                searchIndex.indexAfterCommit(row.id, row.subject, row.body);
+                activityCounters.recordAfterCommit(row.createdBy);
+                sketchStore.recordAfterCommit(row.createdBy, row.subject, row.timestamp);
+                columnarSnapshot.putAfterCommit(row.id, row.createdBy, row.subject, row.timestamp,
+                        row.similarityScore != null);
+            }
+            return found;
+        });
+        return duplicates != null ? duplicates : 0;
+    }
+
+    // 既存行とは一括照合、チャンク内の先行行とは候補キーを共有するものだけ比較する
+    private int scoreChunk(List<ImportRow> chunk) {
+        List<ImportRow> fingerprinted = chunk.stream().filter(row -> row.fingerprint != null).toList();
+        List<Optional<DuplicateMatch>> existingMatches = duplicateDetector.findDuplicates(
+                fingerprinted.stream().map(row -> row.fingerprint).toList());
+
+        Map<Long, List<ImportRow>> chunkCandidates = new HashMap<>();
+        int duplicates = 0;
+        for (int i = 0; i < fingerprinted.size(); i++) {
+            ImportRow row = fingerprinted.get(i);
+            existingMatches.get(i).ifPresent(match -> {
+                row.similarityScore = match.score();
+                row.duplicateOfId = match.historyId();
+            });
+
+            Set<ImportRow> compared = new HashSet<>();
+            for (long key : duplicateDetector.candidateKeys(row.fingerprint)) {
+                List<ImportRow> sameKey = chunkCandidates.computeIfAbsent(key, k -> new ArrayList<>());
+                for (ImportRow earlier : sameKey) {
+                    if (!compared.add(earlier)) {
+                        continue;
+                    }
+                    double score = duplicateDetector.similarity(row.fingerprint, earlier.fingerprint);
+                    if (duplicateDetector.isDuplicate(score) && (row.similarityScore == null || score > row.similarityScore)) {
+                        row.similarityScore = score;
+                        row.duplicateOfId = null;
+                        row.duplicateOfRow = earlier;
+                    }
+                }
+                sameKey.add(row);
+            }
+            if (row.similarityScore != null) {
+                duplicates++;
+            }
+        }
+        return duplicates;
+    }
+
+    private void insertRows(List<ImportRow> chunk) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        Timestamp updatedAt = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_HISTORY, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ImportRow row = chunk.get(i);
+                        ps.setString(1, row.subject);
+                        ps.setString(2, row.body);
+                        ps.setTimestamp(3, Timestamp.valueOf(row.timestamp));
+                        ps.setString(4, row.createdBy);
+                        ps.setBoolean(5, row.similarityScore != null);
+                        setNullable(ps, 6, row.similarityScore, Types.DOUBLE);
+                        setNullable(ps, 7, row.duplicateOfId, Types.BIGINT);
+                        ps.setString(8, DedupStatus.DONE.name());
+                        if (row.fingerprint != null) {
+                            long simHash = row.fingerprint.simHash();
+                            ps.setBytes(9, SimilarityKernel.encode(row.fingerprint.tokens()));
+                            ps.setLong(10, simHash);
+                            for (int block = 0; block < SimHash.BLOCKS; block++) {
+                                ps.setInt(11 + block, SimHash.block(simHash, block));
+                            }
+                        } else {
+                            for (int column = 9; column <= 14; column++) {
+                                ps.setNull(column, column == 9 ? Types.BLOB : Types.BIGINT);
+                            }
+                        }
+                        ps.setTimestamp(15, updatedAt);
+                        if (row.fingerprint != null) {
+                            ps.setBytes(16, row.fingerprint.contentHash());
+                        } else {
+                            ps.setNull(16, Types.BINARY);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return chunk.size();
+                    }
+                },
+                keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < chunk.size(); i++) {
+            chunk.get(i).id = ((Number) generated.get(i).values().iterator().next()).longValue();
+        }
+    }
+
+    private void insertBands(List<ImportRow> chunk) {
+        List<Object[]> bands = new ArrayList<>(chunk.size() * MinHash.BANDS);
+        for (ImportRow row : chunk) {
+            if (row.fingerprint == null) {
+                continue;
+            }
+            long[] bandKeys = row.fingerprint.bandKeys();
+            for (int band = 0; band < bandKeys.length; band++) {
+                bands.add(new Object[]{row.id, band, bandKeys[band]});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_BAND, bands);
+    }
+
+    // チャンク内の先行行を重複元とする行は、INSERT 後に確定した ID で張り直す
+    private void linkChunkDuplicates(List<ImportRow> chunk) {
+        List<Object[]> links = new ArrayList<>();
+        for (ImportRow row : chunk) {
+            if (row.duplicateOfRow != null) {
+                links.add(new Object[]{row.duplicateOfRow.id, row.id});
+            }
+        }
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_DUPLICATE_OF, links);
+        }
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, sqlType);
+        } else {
+            ps.setObject(index, value, sqlType);
+        }
+    }
+
+    private static class ImportRow {
+        private Long id;
+        private String subject;
+        private String body;
+        private LocalDateTime timestamp;
+        private String createdBy;
+        private HistoryFingerprint fingerprint;
+        private Double similarityScore;
+        private Long duplicateOfId;
+        private ImportRow duplicateOfRow;
+    }
+}
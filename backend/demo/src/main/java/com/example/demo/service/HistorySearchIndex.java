@@ -0,0 +1,466 @@
+package com.example.demo.service;
+
+import com.example.demo.config.DataMigrationsCompletedEvent;
+import com.example.demo.repository.HistoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * history の件名・本文のインメモリ転置索引（NFKC 正規化 + 文字 bigram、BM25 ランキング）。
+ * <p>
+ * 文書は内部番号（docNo）を追記順に振り、ポスティングは docNo の差分と語頻度を可変長整数で詰めて保持する。
+ * 更新は旧 docNo を削除済みにして新しい docNo で追記し、削除済みの文書は検索時に読み飛ばす。
+ * 削除済みの割合が history.search.compact-dead-ratio を超えたら、定期ジョブが生きている文書だけに docNo を振り直して
+ * ポスティングを詰め直す（更新・削除の回数ではなく件数に比例したメモリ・検索時間に保つ）。
+ * 起動時にバックグラウンドで DB から再構築し、以降は保存・更新・削除のコミット後に差分反映する。
+ */
+@Component
+public class HistorySearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(HistorySearchIndex.class);
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final HistoryRepository historyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final HistoryBodyCodec bodyCodec;
+    private final double compactDeadRatio;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Postings> postings = new HashMap<>();
+    private final Map<Long, Integer> docByHistoryId = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private long[] historyIdByDoc = new long[1024];
+    private int[] docLength = new int[1024];
+    private int docCount;
+    private int liveCount;
+    private long liveLength;
+
+    // 再構築中に差分反映された ID（再構築側の古いスナップショットで上書きしない）。反映より前に記録する
+    private final Set<Long> touchedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+
+    public HistorySearchIndex(HistoryRepository historyRepository, TransactionTemplate transactionTemplate,
+                              HistoryBodyCodec bodyCodec,
+                              @Value("${history.search.compact-dead-ratio:0.3}") double compactDeadRatio) {
+        this.historyRepository = historyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.bodyCodec = bodyCodec;
+        this.compactDeadRatio = compactDeadRatio;
+    }
+
+    public record Hit(Long historyId, double score) {
+    }
+
+    /**
+     * BM25 の上位 limit 件。クエリも同じ正規化で bigram に分解する（1 文字のクエリは一致しない）。
+     */
+    public List<Hit> search(String query, int limit) {
+        int[] terms = SimilarityKernel.tokenize(query);
+        if (terms.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) {
+                return List.of();
+            }
+            double averageLength = (double) liveLength / liveCount;
+            // 一致した文書だけを持つ疎な累積器（文書総数ぶんの配列は確保しない）
+            ScoreAccumulator scores = new ScoreAccumulator();
+            for (int term : terms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                // count は削除済みも含むので、詰め直すまでは生きている件数で頭打ちにする（idf が負にならないように）
+                int documentFrequency = Math.min(list.count, liveCount);
+                double idf = Math.log(1 + (liveCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                list.forEach((doc, tf) -> {
+                    if (live.get(doc)) {
+                        double norm = K1 * (1 - B + B * docLength[doc] / averageLength);
+                        scores.add(doc, (float) (idf * tf * (K1 + 1) / (tf + norm)));
+                    }
+                });
+            }
+
+            PriorityQueue<long[]> top = new PriorityQueue<>(limit + 1, (a, b) -> Float.compare(score(a), score(b)));
+            scores.forEach((doc, score) -> {
+                if (score <= 0) {
+                    return;
+                }
+                if (top.size() < limit) {
+                    top.add(entry(doc, score));
+                } else if (score > score(top.peek())) {
+                    top.poll();
+                    top.add(entry(doc, score));
+                }
+            });
+            List<Hit> hits = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                long[] hit = top.poll();
+                hits.add(new Hit(historyIdByDoc[(int) hit[0]], score(hit)));
+            }
+            Collections.reverse(hits);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 保存・更新された履歴を反映する（トランザクション中ならコミット後）
+     */
+    public void indexAfterCommit(Long historyId, String subject, String body) {
+        afterCommit(() -> {
+            if (rebuilding) {
+                touchedDuringRebuild.add(historyId);
+            }
+            index(historyId, subject, body);
+        });
+    }
+
+    public void removeAfterCommit(Long historyId) {
+        afterCommit(() -> {
+            if (rebuilding) {
+                touchedDuringRebuild.add(historyId);
+            }
+            remove(historyId);
+        });
+    }
+
+    /**
+     * 削除済みの文書が多くなったら生きている文書だけに詰め直す
+     */
+    @Scheduled(fixedDelayString = "${history.search.compact-interval:PT1M}")
+    public void compactIfNeeded() {
+        if (rebuilding) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int dead = docCount - liveCount;
+            if (dead == 0 || dead < docCount * compactDeadRatio) {
+                return;
+            }
+            long start = System.nanoTime();
+            compactLocked();
+            log.info("History search index compacted: {} dead documents dropped in {} ms",
+                    dead, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(DataMigrationsCompletedEvent.class)
+    public void rebuildInBackground() {
+        Thread thread = new Thread(this::rebuild, "history-search-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        rebuilding = true;
+        try {
+            long[] indexed = new long[1];
+            // ストリーム中は辞書を DB から読めないので先に読み込む
+            bodyCodec.loadDictionaries();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<HistoryRepository.SearchDocumentView> rows = historyRepository.streamSearchDocuments()) {
+                    rows.forEach(row -> {
+                        if (indexLoaded(row)) {
+                            indexed[0]++;
+                        }
+                    });
+                }
+            });
+            log.info("History search index built: {} documents in {} ms",
+                    indexed[0], (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.error("History search index rebuild failed", e);
+        } finally {
+            rebuilding = false;
+            touchedDuringRebuild.clear();
+        }
+    }
+
+    /**
+     * 再構築で読んだ行を反映する。差分反映（削除を含む）と同じ書き込みロックの中で確認するので、
+     * 確認と反映の間に削除されて古い行が復活することはない。
+     */
+    private boolean indexLoaded(HistoryRepository.SearchDocumentView row) {
+        int[] terms = terms(row.getSubject(),
+                bodyCodec.read(row.getBody(), row.getBodyCompressed(), row.getBodyDictionaryId()));
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringRebuild.contains(row.getId())) {
+                return false;
+            }
+            indexLocked(row.getId(), terms);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Long historyId, String subject, String body) {
+        int[] terms = terms(subject, body);
+        lock.writeLock().lock();
+        try {
+            indexLocked(historyId, terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int[] terms(String subject, String body) {
+        int[] terms = concat(SimilarityKernel.bigrams(subject), SimilarityKernel.bigrams(body));
+        Arrays.sort(terms);
+        return terms;
+    }
+
+    // terms は整列済み
+    private void indexLocked(Long historyId, int[] terms) {
+        removeLocked(historyId);
+        int doc = docCount++;
+        if (doc == historyIdByDoc.length) {
+            historyIdByDoc = Arrays.copyOf(historyIdByDoc, doc * 2);
+            docLength = Arrays.copyOf(docLength, doc * 2);
+        }
+        historyIdByDoc[doc] = historyId;
+        docLength[doc] = terms.length;
+        docByHistoryId.put(historyId, doc);
+        live.set(doc);
+        liveCount++;
+        liveLength += terms.length;
+
+        int i = 0;
+        while (i < terms.length) {
+            int j = i;
+            while (j < terms.length && terms[j] == terms[i]) {
+                j++;
+            }
+            postings.computeIfAbsent(terms[i], t -> new Postings()).add(doc, j - i);
+            i = j;
+        }
+    }
+
+    private void remove(Long historyId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(historyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(Long historyId) {
+        Integer doc = docByHistoryId.remove(historyId);
+        if (doc != null && live.get(doc)) {
+            live.clear(doc);
+            liveCount--;
+            liveLength -= docLength[doc];
+        }
+    }
+
+    // 生きている文書に追記順のまま docNo を振り直す（差分符号化のため順序を保つ）
+    private void compactLocked() {
+        int[] remap = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (live.get(doc)) {
+                remap[doc] = next;
+                historyIdByDoc[next] = historyIdByDoc[doc];
+                docLength[next] = docLength[doc];
+                next++;
+            } else {
+                remap[doc] = -1;
+            }
+        }
+        postings.replaceAll((term, list) -> list.compact(remap));
+        postings.values().removeIf(list -> list.count == 0);
+        docByHistoryId.replaceAll((historyId, doc) -> remap[doc]);
+        live.clear();
+        live.set(0, next);
+        int capacity = Math.max(1024, Integer.highestOneBit(Math.max(1, next)) * 2);
+        historyIdByDoc = Arrays.copyOf(historyIdByDoc, capacity);
+        docLength = Arrays.copyOf(docLength, capacity);
+        docCount = next;
+    }
+
+    private static long[] entry(int doc, float score) {
+        return new long[]{doc, Float.floatToRawIntBits(score)};
+    }
+
+    private static float score(long[] entry) {
+        return Float.intBitsToFloat((int) entry[1]);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * 1 語のポスティング。(docNo の差分, 語頻度) を可変長整数で追記する。count は削除済みも含む文書頻度。
+     */
+    private static final class Postings {
+        private byte[] data = new byte[8];
+        private int size;
+        private int count;
+        private int lastDoc;
+
+        void add(int doc, int tf) {
+            writeVarInt(doc - lastDoc);
+            writeVarInt(tf);
+            lastDoc = doc;
+            count++;
+        }
+
+        /**
+         * 削除済みの文書（remap が -1）を除き、docNo を付け替えた新しいポスティング
+         */
+        Postings compact(int[] remap) {
+            Postings compacted = new Postings();
+            forEach((doc, tf) -> {
+                int mapped = remap[doc];
+                if (mapped >= 0) {
+                    compacted.add(mapped, tf);
+                }
+            });
+            return compacted;
+        }
+
+        void forEach(PostingConsumer consumer) {
+            int position = 0;
+            int doc = 0;
+            while (position < size) {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                doc += value;
+
+                int tf = 0;
+                shift = 0;
+                do {
+                    b = data[position++];
+                    tf |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                consumer.accept(doc, tf);
+            }
+        }
+
+        private void writeVarInt(int value) {
+            if (size + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PostingConsumer {
+        void accept(int doc, int tf);
+    }
+
+    /**
+     * docNo → スコアの開番地法ハッシュ表。検索 1 回分だけ使う。
+     */
+    private static final class ScoreAccumulator {
+        private int[] docs = new int[64];
+        private float[] scores = new float[64];
+        private boolean[] used = new boolean[64];
+        private int size;
+
+        void add(int doc, float score) {
+            if (size * 2 >= docs.length) {
+                grow();
+            }
+            int mask = docs.length - 1;
+            int slot = (int) MinHash.mix(doc) & mask;
+            while (used[slot] && docs[slot] != doc) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) {
+                used[slot] = true;
+                docs[slot] = doc;
+                size++;
+            }
+            scores[slot] += score;
+        }
+
+        void forEach(ScoreConsumer consumer) {
+            for (int slot = 0; slot < docs.length; slot++) {
+                if (used[slot]) {
+                    consumer.accept(docs[slot], scores[slot]);
+                }
+            }
+        }
+
+        private void grow() {
+            int[] oldDocs = docs;
+            float[] oldScores = scores;
+            boolean[] oldUsed = used;
+            docs = new int[oldDocs.length * 2];
+            scores = new float[oldDocs.length * 2];
+            used = new boolean[oldDocs.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldDocs.length; slot++) {
+                if (oldUsed[slot]) {
+                    add(oldDocs[slot], oldScores[slot]);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ScoreConsumer {
+        void accept(int doc, float score);
+    }
+}
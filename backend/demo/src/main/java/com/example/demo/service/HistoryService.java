@@ -1,26 +1,43 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.HistoryChangesResponse;
+import com.example.demo.dto.HistoryPageResponse;
+import com.example.demo.dto.HistorySearchHit;
+import com.example.demo.dto.HistorySummaryPageResponse;
+import com.example.demo.dto.HistorySummaryResponse;
 import com.example.demo.dto.SaveHistoryRequest;
 import com.example.demo.dto.SaveHistoryResponse;
 import com.example.demo.dto.UpdateHistoryRequest;
+import com.example.demo.model.DedupStatus;
 import com.example.demo.model.History;
+import com.example.demo.model.HistoryTombstone;
+import com.example.demo.repository.HistoryHourlyRollupRepository;
 import com.example.demo.repository.HistoryRepository;
+import com.example.demo.repository.HistoryTombstoneRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
-import java.time.ZoneId;
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.HashSet;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -28,49 +45,215 @@ import java.util.stream.Collectors;
 public class HistoryService {
 
     private final HistoryRepository historyRepository;
+    private final HistoryTombstoneRepository tombstoneRepository;
+    private final HistoryDuplicateIndex duplicateIndex;
+    private final HistoryTokenCache tokenCache;
+    private final DuplicateDetector duplicateDetector;
+    private final HistoryExactDuplicateLookup exactDuplicateLookup;
+    private final HistoryDedupWorker dedupWorker;
+    private final HistorySearchIndex searchIndex;
+    private final HistoryBodyCodec bodyCodec;
+    private final HistoryActivityRollup activityRollup;
+    private final HistoryActivityCounters activityCounters;
+    private final HistorySketchStore sketchStore;
+    private final HistoryColumnarSnapshot columnarSnapshot;
+    private final HistoryAnalysisCache analysisCache;
+    private final HistoryHourlyRollupRepository rollupRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_CHANGES_SIZE = 1000;
+    private static final LocalDateTime SYNC_ORIGIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    // この時間より新しい更新はまだ返さない（先に採番された行が後からコミットされても、返却済みの位置より前に現れないように）
+    @Value("${history.sync.settle-window:5s}")
+    private Duration settleWindow;
 
     @Transactional(readOnly = true)
     public List<SaveHistoryResponse> getAllHistory() {
-        return historyRepository.findAll().stream()
-                .sorted(Comparator.comparing(History::getTimestamp).reversed())
+        return historyRepository.findAllByOrderByTimestampDescIdDesc().stream()
                 .map(this::toResponse)
                 .collect(Collectors.toList());
     }
 
+    // (timestamp DESC, id DESC) のキーセットページング。カーソルは前ページ最終行の (timestamp, id)
+    @Transactional(readOnly = true)
+    public HistoryPageResponse getHistoryPage(String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<History> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = historyRepository.findLatest(page);
+        } else {
+            CursorPosition position = decodeCursor(cursor);
+            rows = historyRepository.findOlderThan(position.timestamp(), position.id(), page);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<History> items = hasMore ? rows.subList(0, pageSize) : rows;
+        History last = hasMore ? items.get(items.size() - 1) : null;
+        String nextCursor = last != null ? encodeCursor(last.getTimestamp(), last.getId()) : null;
+        return new HistoryPageResponse(items.stream().map(this::toResponse).collect(Collectors.toList()), nextCursor);
+    }
+
+    // getHistoryPage と同じ並び・カーソルで本文を除いた一覧
+    @Transactional(readOnly = true)
+    public HistorySummaryPageResponse getHistorySummaries(String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<HistoryRepository.SummaryView> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = historyRepository.findLatestSummaries(page);
+        } else {
+            CursorPosition position = decodeCursor(cursor);
+            rows = historyRepository.findSummariesOlderThan(position.timestamp(), position.id(), page);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<HistoryRepository.SummaryView> items = hasMore ? rows.subList(0, pageSize) : rows;
+        HistoryRepository.SummaryView last = hasMore ? items.get(items.size() - 1) : null;
+        String nextCursor = last != null ? encodeCursor(last.getTimestamp(), last.getId()) : null;
+        return new HistorySummaryPageResponse(items.stream().map(HistoryService::toSummary).collect(Collectors.toList()), nextCursor);
+    }
+
+    @Transactional(readOnly = true)
+    public String getHistoryBody(Long historyId) {
+        return historyRepository.findBodyById(historyId)
+                .map(view -> bodyCodec.read(view.getBody(), view.getBodyCompressed(), view.getBodyDictionaryId()))
+                .orElseThrow(() -> new NoSuchElementException("History not found"));
+    }
+
+    /**
+     * since 以降の追加・更新行と削除 ID を返す。since を省略すると先頭から（全件の初回同期）。
+     * トークンは更新側 (updatedAt, id) と削除側 (deletedAt, historyId) の 2 つの位置を持ち、それぞれ独立に進む。
+     */
+    @Transactional(readOnly = true)
+    public HistoryChangesResponse getChanges(String since, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_CHANGES_SIZE));
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        SyncToken token = since == null || since.isBlank()
+                ? new SyncToken(SYNC_ORIGIN, 0L, SYNC_ORIGIN, 0L)
+                : decodeSyncToken(since);
+        LocalDateTime horizon = LocalDateTime.now().minus(settleWindow);
+
+        List<History> rows = historyRepository.findChangedAfter(token.updatedAt(), token.updatedId(), horizon, page);
+        List<HistoryTombstone> tombstones = tombstoneRepository.findDeletedAfter(
+                token.deletedAt(), token.deletedId(), horizon, page);
+
+        boolean hasMore = rows.size() > pageSize || tombstones.size() > pageSize;
+        List<History> changed = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+        List<HistoryTombstone> deleted = tombstones.size() > pageSize ? tombstones.subList(0, pageSize) : tombstones;
+
+        SyncToken next = token;
+        if (!changed.isEmpty()) {
+            History last = changed.get(changed.size() - 1);
+            next = new SyncToken(last.getUpdatedAt(), last.getId(), next.deletedAt(), next.deletedId());
+        }
+        if (!deleted.isEmpty()) {
+            HistoryTombstone last = deleted.get(deleted.size() - 1);
+            next = new SyncToken(next.updatedAt(), next.updatedId(), last.getDeletedAt(), last.getHistoryId());
+        }
+        return new HistoryChangesResponse(
+                changed.stream().map(this::toResponse).collect(Collectors.toList()),
+                deleted.stream().map(t -> String.valueOf(t.getHistoryId())).collect(Collectors.toList()),
+                encodeSyncToken(next),
+                hasMore);
+    }
+
+    @Transactional(readOnly = true)
+    public SaveHistoryResponse getHistory(Long historyId) {
+        return historyRepository.findById(historyId)
+                .map(this::toResponse)
+                .orElseThrow(() -> new NoSuchElementException("History not found"));
+    }
+
+    /**
+     * 全履歴を id 順に NDJSON（1 行 1 件の SaveHistoryResponse）で書き出す。
+     * 行はストリームで受け取り、書き出したエンティティはすぐ永続化コンテキストから外すのでメモリ使用量は件数に依存しない。
+     */
+    @Transactional(readOnly = true)
+    public long exportHistory(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(SaveHistoryResponse.class);
+        long exported = 0;
+        // ストリーム中は辞書を DB から読めないので先に読み込む
+        bodyCodec.loadDictionaries();
+        try (Stream<History> rows = historyRepository.streamAll()) {
+            Iterator<History> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                History history = iterator.next();
+                out.write(writer.writeValueAsBytes(toResponse(history)));
+                out.write('\n');
+                entityManager.detach(history);
+                exported++;
+            }
+        }
+        out.flush();
+        return exported;
+    }
+
     // 重複チェックして保存
     public SaveHistoryResponse saveHistory(SaveHistoryRequest request) {
         History history = new History();
         history.setSubject(request.getSubject());
-        history.setBody(request.getBody());
+        bodyCodec.write(history, request.getBody());
         history.setTimestamp(Optional.ofNullable(request.getTimestamp())
-                .map(this::parseTimestamp)
+                .map(HistoryService::parseTimestamp)
                 .orElse(LocalDateTime.now()));
         history.setCreatedBy(Optional.ofNullable(request.getUser()).orElse("anonymous"));
 
-        historyRepository.findAll().stream()
-                .filter(existing -> existing.getBody() != null)
-                .map(existing -> Map.entry(existing, calculateSimilarity(history.getBody(), existing.getBody())))
-                .filter(entry -> entry.getValue() != null && entry.getValue() > 0.8)
-                .max(Map.Entry.comparingByValue())
-                .ifPresent(entry -> {
-                    history.setDuplicate(true);
-                    history.setSimilarityScore(entry.getValue());
-                    history.setDuplicateOfId(entry.getKey().getId());
-                });
+        HistoryFingerprint fingerprint = request.getBody() != null ? HistoryFingerprint.of(request.getBody()) : null;
+        // 完全一致は索引 1 回で確定するので、非同期モードでもその場で判定する
+        DuplicateMatch exactMatch = fingerprint != null
+                ? exactDuplicateLookup.findDuplicate(fingerprint.contentHash()).orElse(null)
+                : null;
+        // 非同期モードでは判定を待たずに保存し、コミット後にワーカーが判定する
+        boolean deferred = fingerprint != null && exactMatch == null && dedupWorker.isEnabled();
+        if (fingerprint != null) {
+            fingerprint.applyTo(history);
+        }
+        Optional<DuplicateMatch> match = exactMatch != null
+                ? Optional.of(exactMatch)
+                : fingerprint != null && !deferred ? duplicateDetector.findDuplicate(fingerprint) : Optional.empty();
+        match.ifPresent(m -> {
+            history.setDuplicate(true);
+            history.setSimilarityScore(m.score());
+            history.setDuplicateOfId(m.historyId());
+        });
+        history.setDedupStatus(deferred ? DedupStatus.PENDING : DedupStatus.DONE);
 
         History saved = historyRepository.save(history);
+        activityRollup.add(HistoryActivityRollup.Key.of(saved));
+        analysisCache.invalidateAfterCommit(List.of(saved.getCreatedBy()));
+        activityCounters.recordAfterCommit(saved.getCreatedBy());
+        sketchStore.recordAfterCommit(saved.getCreatedBy(), saved.getSubject(), saved.getTimestamp());
+        columnarSnapshot.putAfterCommit(saved.getId(), saved.getCreatedBy(), saved.getSubject(), saved.getTimestamp(),
+                saved.isDuplicate());
+        if (fingerprint != null) {
+            duplicateIndex.add(saved.getId(), fingerprint.bandKeys());
+            tokenCache.put(saved.getId(), fingerprint.tokens());
+        }
+        if (deferred) {
+            dedupWorker.submitAfterCommit(saved.getId());
+        }
+        searchIndex.indexAfterCommit(saved.getId(), saved.getSubject(), request.getBody());
         return toResponse(saved);
     }
 
     public SaveHistoryResponse updateHistory(Long historyId, UpdateHistoryRequest request) {
         History history = historyRepository.findById(historyId)
                 .orElseThrow(() -> new NoSuchElementException("History not found"));
+        Optional<HistoryActivityRollup.Key> rollupKey = HistoryActivityRollup.Key.of(history);
+        String previousUser = history.getCreatedBy();
 
         if (request.getSubject() != null) {
             history.setSubject(request.getSubject());
         }
+        HistoryFingerprint fingerprint = null;
         if (request.getBody() != null) {
-            history.setBody(request.getBody());
+            bodyCodec.write(history, request.getBody());
+            fingerprint = HistoryFingerprint.of(request.getBody());
+            fingerprint.applyTo(history);
         }
         if (request.getTimestamp() != null) {
             history.setTimestamp(parseTimestamp(request.getTimestamp()));
@@ -81,67 +264,132 @@ public class HistoryService {
         }
 
         History saved = historyRepository.save(history);
+        activityRollup.move(rollupKey, HistoryActivityRollup.Key.of(saved));
+        analysisCache.invalidateAfterCommit(Stream.of(previousUser, saved.getCreatedBy())
+                .filter(Objects::nonNull).distinct().toList());
+        columnarSnapshot.putAfterCommit(saved.getId(), saved.getCreatedBy(), saved.getSubject(), saved.getTimestamp(),
+                saved.isDuplicate());
+        if (fingerprint != null) {
+            duplicateIndex.put(saved.getId(), fingerprint.bandKeys());
+            tokenCache.put(saved.getId(), fingerprint.tokens());
+        }
+        searchIndex.indexAfterCommit(saved.getId(), saved.getSubject(), bodyCodec.read(saved));
         return toResponse(saved);
     }
 
     public void deleteHistory(Long historyId) {
-        if (!historyRepository.existsById(historyId)) {
-            throw new NoSuchElementException("History not found");
+        History history = historyRepository.findById(historyId)
+                .orElseThrow(() -> new NoSuchElementException("History not found"));
+        historyRepository.delete(history);
+        activityRollup.remove(HistoryActivityRollup.Key.of(history));
+        if (history.getCreatedBy() != null) {
+            analysisCache.invalidateAfterCommit(List.of(history.getCreatedBy()));
+        }
+        columnarSnapshot.removeAfterCommit(historyId);
+        tombstoneRepository.save(new HistoryTombstone(historyId, LocalDateTime.now()));
+        duplicateIndex.remove(historyId);
+        tokenCache.evict(historyId);
+        searchIndex.removeAfterCommit(historyId);
+    }
+
+    // 件名・本文の全文検索（BM25 順）
+    @Transactional(readOnly = true)
+    public List<HistorySearchHit> searchHistory(String query, int limit) {
+        List<HistorySearchIndex.Hit> hits = searchIndex.search(query, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        Map<Long, HistoryRepository.SummaryView> rows = historyRepository.findSummariesByIdIn(
+                        hits.stream().map(HistorySearchIndex.Hit::historyId).toList())
+                .stream()
+                .collect(Collectors.toMap(HistoryRepository.SummaryView::getId, h -> h));
+        return hits.stream()
+                .filter(hit -> rows.containsKey(hit.historyId()))
+                .map(hit -> {
+                    HistoryRepository.SummaryView history = rows.get(hit.historyId());
+                    return new HistorySearchHit(String.valueOf(history.getId()), hit.score(), history.getSubject(),
+                            history.getCreatedBy(),
+                            Optional.ofNullable(history.getTimestamp()).map(LocalDateTime::toString).orElse(null));
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static String encodeCursor(LocalDateTime timestamp, Long id) {
+        String position = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static CursorPosition decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.lastIndexOf('|');
+            return new CursorPosition(LocalDateTime.parse(position.substring(0, separator)),
+                    Long.valueOf(position.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private record CursorPosition(LocalDateTime timestamp, Long id) {
+    }
+
+    private static String encodeSyncToken(SyncToken token) {
+        String position = token.updatedAt() + "|" + token.updatedId() + "|" + token.deletedAt() + "|" + token.deletedId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SyncToken decodeSyncToken(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            return new SyncToken(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]),
+                    LocalDateTime.parse(parts[2]), Long.valueOf(parts[3]));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid sync token", e);
         }
-        historyRepository.deleteById(historyId);
+    }
+
+    private record SyncToken(LocalDateTime updatedAt, Long updatedId, LocalDateTime deletedAt, Long deletedId) {
     }
 
     private SaveHistoryResponse toResponse(History history) {
         SaveHistoryResponse response = new SaveHistoryResponse();
         response.setHistoryId(String.valueOf(history.getId()));
         response.setSubject(history.getSubject());
-        response.setBody(history.getBody());
+        response.setBody(bodyCodec.read(history));
         response.setTimestamp(Optional.ofNullable(history.getTimestamp()).map(LocalDateTime::toString).orElse(null));
         response.setUser(history.getCreatedBy());
         response.setCreatedBy(history.getCreatedBy());
         response.setDuplicate(history.isDuplicate());
         response.setSimilarityScore(history.getSimilarityScore());
         response.setDuplicateOfId(Optional.ofNullable(history.getDuplicateOfId()).map(String::valueOf).orElse(null));
+        response.setDedupStatus(Optional.ofNullable(history.getDedupStatus()).orElse(DedupStatus.DONE).name());
         return response;
     }
 
-    private Double calculateSimilarity(String text1, String text2) {
-        if (text1 == null || text2 == null) {
-            return null;
-        }
-        String normalized1 = text1.toLowerCase();
-        String normalized2 = text2.toLowerCase();
-        if (normalized1.equals(normalized2)) {
-            return 1.0;
-        }
-        Set<String> words1 = new HashSet<>(Arrays.asList(normalized1.split("\\s+")));
-        Set<String> words2 = new HashSet<>(Arrays.asList(normalized2.split("\\s+")));
-        Set<String> union = new HashSet<>(words1);
-        union.addAll(words2);
-        Set<String> intersection = new HashSet<>(words1);
-        intersection.retainAll(words2);
-        if (union.isEmpty()) {
-            return 0.0;
-        }
-        return (double) intersection.size() / union.size();
+    private static HistorySummaryResponse toSummary(HistoryRepository.SummaryView view) {
+        HistorySummaryResponse response = new HistorySummaryResponse();
+        response.setHistoryId(String.valueOf(view.getId()));
+        response.setSubject(view.getSubject());
+        response.setTimestamp(Optional.ofNullable(view.getTimestamp()).map(LocalDateTime::toString).orElse(null));
+        response.setUser(view.getCreatedBy());
+        response.setCreatedBy(view.getCreatedBy());
+        response.setDuplicate(Boolean.TRUE.equals(view.getDuplicate()));
+        response.setSimilarityScore(view.getSimilarityScore());
+        response.setDuplicateOfId(Optional.ofNullable(view.getDuplicateOfId()).map(String::valueOf).orElse(null));
+        response.setDedupStatus(Optional.ofNullable(view.getDedupStatus()).orElse(DedupStatus.DONE).name());
+        return response;
     }
 
-    private LocalDateTime parseTimestamp(String timestamp) {
-        try {
-            return OffsetDateTime.parse(timestamp)
-                    .atZoneSameInstant(ZoneId.systemDefault())
-                    .toLocalDateTime();
-        } catch (Exception offsetParseException) {
-            return LocalDateTime.parse(timestamp);
+    static LocalDateTime parseTimestamp(String timestamp) {
+        LocalDateTime parsed = TimestampParser.parse(timestamp);
+        if (parsed == null) {
+            throw new DateTimeParseException("Text '" + timestamp + "' could not be parsed", timestamp, 0);
         }
+        return parsed;
     }
 
     // --- 追加: 職種別ユーザーのアクションを時間帯ごとに集計 ---
     @Transactional(readOnly = true)
     public Map<Integer, Long> countActionsByHour(String role) {
-        return historyRepository.findAll().stream()
-                .filter(h -> role.equalsIgnoreCase(h.getCreatedBy()))
-                .map(h -> h.getTimestamp().getHour())
-                .collect(Collectors.groupingBy(hour -> hour, Collectors.counting()));
+        return rollupRepository.countByHour(role).stream()
+                .collect(Collectors.toMap(HistoryHourlyRollupRepository.HourCount::getKey,
+                        HistoryHourlyRollupRepository.HourCount::getCount));
     }
 }
\ No newline at end of file
@@ -0,0 +1,299 @@
+package com.example.demo.service;
+
+import com.example.demo.config.DataMigrationsCompletedEvent;
+import com.example.demo.model.HistorySketch;
+import com.example.demo.model.HistorySketchSeed;
+import com.example.demo.repository.HistorySketchRepository;
+import com.example.demo.repository.HistorySketchSeedRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 日ごとの近似集計（{@link HyperLogLog} と {@link TopKSketch}）を history_sketch に保持する。
+ * <p>
+ * 保存時はコミット後にメモリ上の差分へ加え、定期的に行ロックを取って DB の値と合算して書き戻す（複数ノードでも加算される）。
+ * 照会は期間内の日ごとの行と未書き戻しの差分を合算する。削除・更新は反映しない（sketch は減算できないため）。
+ * 初回はデータマイグレーション（history_hourly_rollup の作成を含む）がすべて成功した後に rollup から作り、
+ * 完了の印を history_sketch_seed に残す（印があれば作らない）。作り終えるまでは書き戻しを止めておき、
+ * rollup を読むスナップショットより前に記録された差分は捨てる（二重計上を防ぐ）。
+ */
+@Component
+public class HistorySketchStore {
+
+    private static final Logger log = LoggerFactory.getLogger(HistorySketchStore.class);
+
+    // 全ユーザーを対象とする scope
+    public static final String ALL = "*";
+
+    private static final String ROLLUP_BY_DAY = "SELECT created_by, activity_date, subject, SUM(action_count) " +
+            "FROM history_hourly_rollup GROUP BY created_by, activity_date, subject HAVING SUM(action_count) > 0 " +
+            "ORDER BY activity_date";
+
+    private final HistorySketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final HistorySketchSeedRepository seedRepository;
+    // 初回作成時に丸ごと差し替えるので volatile
+    private volatile Map<BucketKey, Sketches> pending = new ConcurrentHashMap<>();
+    private volatile boolean seeded;
+
+    public HistorySketchStore(HistorySketchRepository sketchRepository,
+                              TransactionTemplate transactionTemplate,
+                              JdbcTemplate jdbcTemplate,
+                              HistorySketchSeedRepository seedRepository) {
+        this.sketchRepository = sketchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.seedRepository = seedRepository;
+    }
+
+    private record BucketKey(String scope, LocalDate date) {
+    }
+
+    private static final class Sketches {
+        final HyperLogLog users;
+        final TopKSketch subjects;
+
+        Sketches() {
+            this(new HyperLogLog(), new TopKSketch());
+        }
+
+        Sketches(HyperLogLog users, TopKSketch subjects) {
+            this.users = users;
+            this.subjects = subjects;
+        }
+
+        void add(String user, String subject, long count) {
+            users.add(user);
+            subjects.add(subject, count);
+        }
+
+        void merge(Sketches other) {
+            users.merge(other.users);
+            subjects.merge(other.subjects);
+        }
+    }
+
+    /**
+     * 現在のトランザクションのコミット後に 1 件記録する
+     */
+    public void recordAfterCommit(String createdBy, String subject, LocalDateTime timestamp) {
+        if (createdBy == null || timestamp == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(createdBy, subject, timestamp.toLocalDate(), 1);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(createdBy, subject, timestamp.toLocalDate(), 1);
+            }
+        });
+    }
+
+    /**
+     * 期間 [from, to]（日単位）の異なりユーザー数の推定
+     */
+    public long distinctUsers(LocalDate from, LocalDate to) {
+        return load(ALL, from, to).users.estimate();
+    }
+
+    /**
+     * 期間 [from, to] のユーザーの頻出件名（推定件数の多い順）
+     */
+    public List<TopKSketch.Entry> topSubjects(String user, LocalDate from, LocalDate to, int k) {
+        return load(scope(user), from, to).subjects.top(k);
+    }
+
+    @Scheduled(initialDelayString = "${history.sketch.flush-interval:PT30S}",
+            fixedDelayString = "${history.sketch.flush-interval:PT30S}")
+    public void flush() {
+        if (!seeded) {
+            return; // 初回作成が終わるまで差分はメモリ上に保持する
+        }
+        for (BucketKey key : List.copyOf(pending.keySet())) {
+            Sketches delta = pending.remove(key);
+            if (delta == null) {
+                continue;
+            }
+            try {
+                persist(key, delta);
+            } catch (Exception e) {
+                // 次回の書き戻しで再試行する
+                mergePending(key, delta);
+                log.error("History sketch flush failed for {} {}", key.scope(), key.date(), e);
+            }
+        }
+    }
+
+    @EventListener
+    public void rebuildInBackground(DataMigrationsCompletedEvent event) {
+        if (event.failed()) {
+            // rollup が未完成の可能性がある。差分はメモリ上に保持したままにし、次回起動時に rollup から作る
+            log.warn("History sketch seed skipped because a data migration failed");
+            return;
+        }
+        Thread thread = new Thread(this::seedIfNeeded, "history-sketch-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 完了の印がなければ history_hourly_rollup から作り直す。削除・作成・印の記録は 1 トランザクションで行うので、
+     * 途中で失敗しても次回起動時に最初からやり直せる。
+     */
+    private void seedIfNeeded() {
+        AtomicReference<Map<BucketKey, Sketches>> beforeSnapshot = new AtomicReference<>();
+        try {
+            if (seedRepository.existsById(HistorySketchSeed.ID)) {
+                return;
+            }
+            long start = System.nanoTime();
+            Map<BucketKey, Sketches> day = new HashMap<>();
+            transactionTemplate.executeWithoutResult(status -> {
+                // 印のない行（以前の版で作った行、書き戻しが先に作った行など）は作り直す
+                jdbcTemplate.update("DELETE FROM history_sketch");
+                // 次の rollup の読み取りでスナップショットが決まる。直前までに記録された差分はコミット済みの保存のものなので
+                // rollup から数えられる。以降に記録される差分だけを残す（差し替えから読み取りまでの間にコミットされた保存だけは
+                // 両方に入りうるが、数え漏れはしない）
+                beforeSnapshot.set(pending);
+                pending = new ConcurrentHashMap<>();
+                LocalDate[] current = {null};
+                jdbcTemplate.query(ROLLUP_BY_DAY, row -> {
+                    LocalDate date = row.getDate(2).toLocalDate();
+                    if (!date.equals(current[0])) {
+                        day.forEach(this::persist);
+                        day.clear();
+                        current[0] = date;
+                    }
+                    String user = scope(row.getString(1));
+                    String subject = row.getString(3);
+                    long count = row.getLong(4);
+                    day.computeIfAbsent(new BucketKey(ALL, date), k -> new Sketches()).add(user, subject, count);
+                    day.computeIfAbsent(new BucketKey(user, date), k -> new Sketches()).add(user, subject, count);
+                });
+                day.forEach(this::persist);
+                seedRepository.saveAndFlush(new HistorySketchSeed(HistorySketchSeed.ID, LocalDateTime.now()));
+            });
+            log.info("History sketches built in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (DataIntegrityViolationException e) {
+            log.info("History sketches were built by another node");
+        } catch (Exception e) {
+            // 作成はロールバックされたので、捨てた差分を戻す（以降に書き戻した行は次回起動時の作成で作り直される）
+            Map<BucketKey, Sketches> dropped = beforeSnapshot.get();
+            if (dropped != null) {
+                dropped.forEach(this::mergePending);
+            }
+            log.error("History sketch rebuild failed", e);
+        } finally {
+            seeded = true;
+        }
+    }
+
+    private void mergePending(BucketKey key, Sketches delta) {
+        pending.merge(key, delta, (current, added) -> {
+            current.merge(added);
+            return current;
+        });
+    }
+
+    private void record(String createdBy, String subject, LocalDate date, long count) {
+        String user = scope(createdBy);
+        String normalizedSubject = subject != null ? subject : "";
+        for (String scope : new String[]{ALL, user}) {
+            // compute の中で加算するので、flush の remove と競合しても差分は失われない
+            pending.compute(new BucketKey(scope, date), (key, sketches) -> {
+                Sketches target = sketches != null ? sketches : new Sketches();
+                target.add(user, normalizedSubject, count);
+                return target;
+            });
+        }
+    }
+
+    private Sketches load(String scope, LocalDate from, LocalDate to) {
+        Sketches result = new Sketches();
+        for (HistorySketch row : sketchRepository.findByScopeAndBucketDateBetween(scope, from, to)) {
+            result.merge(decode(row));
+        }
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            pending.computeIfPresent(new BucketKey(scope, date), (key, sketches) -> {
+                result.merge(sketches);
+                return sketches;
+            });
+        }
+        return result;
+    }
+
+    private void persist(BucketKey key, Sketches delta) {
+        try {
+            mergeInto(key, delta);
+        } catch (DataIntegrityViolationException e) {
+            // 他ノードが同じ行を先に作成した場合は、その行に合算し直す
+            mergeInto(key, delta);
+        }
+    }
+
+    private void mergeInto(BucketKey key, Sketches delta) {
+        transactionTemplate.executeWithoutResult(status -> {
+            HistorySketch row = sketchRepository.findForUpdate(key.scope(), key.date())
+                    .orElseGet(() -> new HistorySketch(null, key.scope(), key.date(), null, null));
+            Sketches merged = row.getId() != null ? decode(row) : new Sketches();
+            merged.merge(delta);
+            row.setUsersSketch(deflate(merged.users.toBytes()));
+            row.setSubjectsSketch(deflate(merged.subjects.toBytes()));
+            sketchRepository.saveAndFlush(row);
+        });
+    }
+
+    private static Sketches decode(HistorySketch row) {
+        return new Sketches(HyperLogLog.fromBytes(inflate(row.getUsersSketch())),
+                TopKSketch.fromBytes(inflate(row.getSubjectsSketch())));
+    }
+
+    private static String scope(String user) {
+        return user.toLowerCase(Locale.ROOT);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] data) {
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
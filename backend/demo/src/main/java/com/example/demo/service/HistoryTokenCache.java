@@ -0,0 +1,37 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * history ID → トークン配列の LRU キャッシュ。候補の本文をDBから読み直さずに比較するために使う。
+ */
+@Component
+public class HistoryTokenCache {
+
+    private final Map<Long, int[]> cache;
+
+    public HistoryTokenCache(@Value("${history.dedup.token-cache-size:10000}") int maxEntries) {
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized int[] get(Long historyId) {
+        return cache.get(historyId);
+    }
+
+    public synchronized void put(Long historyId, int[] tokens) {
+        cache.put(historyId, tokens);
+    }
+
+    public synchronized void evict(Long historyId) {
+        cache.remove(historyId);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.HistoryBandRepository;
+import com.example.demo.repository.HistoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * MinHash LSH で候補を絞り、bigram 集合の Jaccard 係数が 0.8 を超える最も近い履歴を重複元とする（既定）。
+ */
+@Component
+@ConditionalOnProperty(name = "history.dedup.strategy", havingValue = "jaccard", matchIfMissing = true)
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class JaccardDuplicateDetector implements DuplicateDetector {
+
+    private static final double DUPLICATE_THRESHOLD = 0.8;
+
+    private final HistoryRepository historyRepository;
+    private final HistoryBandRepository historyBandRepository;
+    private final HistoryDuplicateIndex duplicateIndex;
+    private final HistoryTokenCache tokenCache;
+
+    // LSH バンドを共有する履歴だけを類似度計算（全件走査の代わり）。キャッシュにない候補は保存済みフィンガープリントを読む
+    @Override
+    public Optional<DuplicateMatch> findDuplicate(HistoryFingerprint fingerprint, Long olderThanId) {
+        int[] tokens = fingerprint.tokens();
+        Set<Long> candidateIds = duplicateIndex.findCandidates(fingerprint.bandKeys());
+        DuplicateMatch best = null;
+        List<Long> uncached = new ArrayList<>();
+        for (Long candidateId : candidateIds) {
+            if (olderThanId != null && candidateId >= olderThanId) {
+                continue;
+            }
+            int[] candidateTokens = tokenCache.get(candidateId);
+            if (candidateTokens == null) {
+                uncached.add(candidateId);
+                continue;
+            }
+            best = better(best, candidateId, SimilarityKernel.jaccard(tokens, candidateTokens));
+        }
+        if (!uncached.isEmpty()) {
+            for (HistoryRepository.ShinglesView existing : historyRepository.findShinglesByIdIn(uncached)) {
+                int[] candidateTokens = SimilarityKernel.decode(existing.getShingles());
+                tokenCache.put(existing.getId(), candidateTokens);
+                best = better(best, existing.getId(), SimilarityKernel.jaccard(tokens, candidateTokens));
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    // バンドキーをまとめて 1 回の索引検索で引き、キャッシュにない候補のフィンガープリントも 1 回で読む
+    @Override
+    public List<Optional<DuplicateMatch>> findDuplicates(List<HistoryFingerprint> fingerprints) {
+        Set<Long> allKeys = new HashSet<>();
+        for (HistoryFingerprint fingerprint : fingerprints) {
+            for (long key : fingerprint.bandKeys()) {
+                allKeys.add(key);
+            }
+        }
+        Map<Long, List<Long>> idsByKey = new HashMap<>();
+        for (HistoryBandRepository.BandView band : historyBandRepository.findBandsByBandKeyIn(allKeys)) {
+            idsByKey.computeIfAbsent(band.getBandKey(), k -> new ArrayList<>()).add(band.getHistoryId());
+        }
+
+        Map<Long, int[]> tokensById = new HashMap<>();
+        List<Long> uncached = new ArrayList<>();
+        for (List<Long> ids : idsByKey.values()) {
+            for (Long id : ids) {
+                if (tokensById.containsKey(id)) {
+                    continue;
+                }
+                int[] cached = tokenCache.get(id);
+                tokensById.put(id, cached);
+                if (cached == null) {
+                    uncached.add(id);
+                }
+            }
+        }
+        if (!uncached.isEmpty()) {
+            for (HistoryRepository.ShinglesView existing : historyRepository.findShinglesByIdIn(uncached)) {
+                tokensById.put(existing.getId(), SimilarityKernel.decode(existing.getShingles()));
+            }
+        }
+
+        List<Optional<DuplicateMatch>> matches = new ArrayList<>(fingerprints.size());
+        for (HistoryFingerprint fingerprint : fingerprints) {
+            DuplicateMatch best = null;
+            Set<Long> compared = new HashSet<>();
+            for (long key : fingerprint.bandKeys()) {
+                for (Long id : idsByKey.getOrDefault(key, List.of())) {
+                    int[] candidateTokens = tokensById.get(id);
+                    if (candidateTokens != null && compared.add(id)) {
+                        best = better(best, id, SimilarityKernel.jaccard(fingerprint.tokens(), candidateTokens));
+                    }
+                }
+            }
+            matches.add(Optional.ofNullable(best));
+        }
+        return matches;
+    }
+
+    @Override
+    public long[] candidateKeys(HistoryFingerprint fingerprint) {
+        return fingerprint.bandKeys();
+    }
+
+    @Override
+    public double similarity(HistoryFingerprint a, HistoryFingerprint b) {
+        return SimilarityKernel.jaccard(a.tokens(), b.tokens());
+    }
+
+    @Override
+    public boolean isDuplicate(double similarity) {
+        return similarity > DUPLICATE_THRESHOLD;
+    }
+
+    private DuplicateMatch better(DuplicateMatch best, Long historyId, double score) {
+        if (!isDuplicate(score) || (best != null && best.score() >= score)) {
+            return best;
+        }
+        return new DuplicateMatch(historyId, score);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.service;
+
+/**
+ * 重複判定用の 64bit SimHash。トークン（{@link SimilarityKernel#tokenize(String)}）ごとの 64bit ハッシュを各ビットで多数決する。
+ * <p>
+ * 索引は 16bit × {@link #BLOCKS} ブロックに分割する。ハミング距離 3 以下の組は鳩の巣原理で少なくとも 1 ブロックが完全一致するため、
+ * ブロック列の等価検索だけで候補を漏れなく取得できる。
+ */
+public final class SimHash {
+
+    public static final int BLOCKS = 4;
+    public static final int BLOCK_BITS = 64 / BLOCKS;
+
+    private SimHash() {
+    }
+
+    public static long fingerprint(int[] tokens) {
+        int[] votes = new int[64];
+        for (int token : tokens) {
+            long h = MinHash.mix(token);
+            for (int bit = 0; bit < 64; bit++) {
+                votes[bit] += ((h >>> bit) & 1L) != 0 ? 1 : -1;
+            }
+        }
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (votes[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    public static int block(long fingerprint, int block) {
+        return (int) ((fingerprint >>> (block * BLOCK_BITS)) & 0xFFFF);
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
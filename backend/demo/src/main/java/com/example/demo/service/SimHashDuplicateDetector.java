@@ -0,0 +1,71 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.HistoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * SimHash のブロック列を等価検索して候補を取り、ハミング距離が閾値以下の最も近い履歴を重複元とする。
+ * 類似度は 1 - 距離 / 64 として返す。
+ */
+@Component
+@ConditionalOnProperty(name = "history.dedup.strategy", havingValue = "simhash")
+@Transactional(readOnly = true)
+public class SimHashDuplicateDetector implements DuplicateDetector {
+
+    private final HistoryRepository historyRepository;
+    private final int maxDistance;
+
+    public SimHashDuplicateDetector(HistoryRepository historyRepository,
+                                    @Value("${history.dedup.simhash.max-distance:3}") int maxDistance) {
+        if (maxDistance >= SimHash.BLOCKS) {
+            throw new IllegalArgumentException("history.dedup.simhash.max-distance must be less than " + SimHash.BLOCKS);
+        }
+        this.historyRepository = historyRepository;
+        this.maxDistance = maxDistance;
+    }
+
+    @Override
+    public Optional<DuplicateMatch> findDuplicate(HistoryFingerprint fingerprint, Long olderThanId) {
+        long simHash = fingerprint.simHash();
+        DuplicateMatch best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (HistoryRepository.SimHashView candidate : historyRepository.findSimHashCandidates(
+                SimHash.block(simHash, 0), SimHash.block(simHash, 1),
+                SimHash.block(simHash, 2), SimHash.block(simHash, 3))) {
+            if (olderThanId != null && candidate.getId() >= olderThanId) {
+                continue;
+            }
+            int distance = SimHash.distance(simHash, candidate.getSimHash());
+            if (distance <= maxDistance && distance < bestDistance) {
+                bestDistance = distance;
+                best = new DuplicateMatch(candidate.getId(), 1.0 - (double) distance / 64);
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    // ブロック番号を上位ビットに入れて、別ブロックの同じ値と区別する
+    @Override
+    public long[] candidateKeys(HistoryFingerprint fingerprint) {
+        long[] keys = new long[SimHash.BLOCKS];
+        for (int block = 0; block < SimHash.BLOCKS; block++) {
+            keys[block] = ((long) block << 32) | SimHash.block(fingerprint.simHash(), block);
+        }
+        return keys;
+    }
+
+    @Override
+    public double similarity(HistoryFingerprint a, HistoryFingerprint b) {
+        return 1.0 - (double) SimHash.distance(a.simHash(), b.simHash()) / 64;
+    }
+
+    @Override
+    public boolean isDuplicate(double similarity) {
+        return similarity >= 1.0 - (double) maxDistance / 64;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 重複判定用の類似度カーネル。
+ * 本文は書き込み時に一度だけソート済み・重複なしの int 配列へ変換し、比較はマージ走査のみで行う（比較ごとの割り当てなし）。
+ */
+public final class SimilarityKernel {
+
+    private static final int[] EMPTY = new int[0];
+
+    private SimilarityKernel() {
+    }
+
+    /**
+     * NFKC 正規化（全角/半角の統一）+ 小文字化した本文から空白を除き、文字 bigram を 1 トークンとする。
+     * bigram は 2 文字の UTF-16 コード単位を上位/下位 16bit に詰めた値なので衝突しない。
+     * 空白をほとんど含まない日本語本文でも、語単位分割と違い段落全体が 1 トークンにならない。
+     */
+    public static int[] tokenize(String text) {
+        int[] bigrams = bigrams(text);
+        Arrays.sort(bigrams);
+        int unique = 0;
+        for (int i = 0; i < bigrams.length; i++) {
+            if (unique == 0 || bigrams[unique - 1] != bigrams[i]) {
+                bigrams[unique++] = bigrams[i];
+            }
+        }
+        return Arrays.copyOf(bigrams, unique);
+    }
+
+    /**
+     * {@link #tokenize(String)} と同じ正規化の bigram を出現順・重複込みで返す（全文検索の語頻度用）
+     */
+    public static int[] bigrams(String text) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        int[] buffer = new int[Math.max(1, normalized.length())];
+        int count = 0;
+        char previous = 0;
+        boolean hasPrevious = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            if (hasPrevious) {
+                buffer[count++] = (previous << 16) | c;
+            }
+            previous = c;
+            hasPrevious = true;
+        }
+        if (count == 0 && hasPrevious) {
+            // 1 文字だけの本文は unigram で表す
+            buffer[count++] = previous << 16;
+        }
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * {@link #tokenize(String)} と同じ正規化（NFKC + 小文字化 + 空白除去）をした本文の SHA-256。
+     * 値が一致する本文同士は bigram 列も一致するので、類似度は必ず 1.0 になる。
+     */
+    public static byte[] contentHash(String text) {
+        StringBuilder normalized = new StringBuilder(text == null ? 0 : text.length());
+        if (text != null) {
+            String folded = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+            for (int i = 0; i < folded.length(); i++) {
+                char c = folded.charAt(i);
+                if (!Character.isWhitespace(c)) {
+                    normalized.append(c);
+                }
+            }
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(normalized.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * ソート済みトークン配列を差分 + 可変長整数で詰めたフィンガープリント（History.shingles に保存）
+     */
+    public static byte[] encode(int[] tokens) {
+        byte[] buffer = new byte[tokens.length * 5];
+        int length = 0;
+        long previous = Integer.MIN_VALUE;
+        for (int token : tokens) {
+            long delta = token - previous;
+            previous = token;
+            while ((delta & ~0x7FL) != 0) {
+                buffer[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            buffer[length++] = (byte) delta;
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    public static int[] decode(byte[] fingerprint) {
+        if (fingerprint == null || fingerprint.length == 0) {
+            return EMPTY;
+        }
+        int[] buffer = new int[fingerprint.length];
+        int count = 0;
+        long previous = Integer.MIN_VALUE;
+        int position = 0;
+        while (position < fingerprint.length) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = fingerprint[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            previous += delta;
+            buffer[count++] = (int) previous;
+        }
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * ソート済みトークン配列同士の Jaccard 係数
+     */
+    public static double jaccard(int[] a, int[] b) {
+        if (a.length == 0 && b.length == 0) {
+            return 1.0;
+        }
+        int i = 0;
+        int j = 0;
+        int intersection = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                intersection++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) intersection / (a.length + b.length - intersection);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Slack Web API（chat.postMessage）の呼び出し。結果は例外ではなく {@link Result} で返し、
+ * 再送で成功しうる失敗（レート制限・5xx・通信エラー）かどうかも判定する。
+ */
+@Component
+public class SlackApiClient {
+
+    // ok=false でも時間をおけば成功しうるエラー
+    private static final Set<String> RETRYABLE_ERRORS = Set.of(
+            "ratelimited", "internal_error", "fatal_error", "service_unavailable", "request_timeout");
+
+    @Value("${slack.token:}")
+    private String slackToken;
+
+    @Value("${slack.api.base-url:https://slack.com/api}")
+    private String apiBaseUrl;
+
+    private final RestTemplate restTemplate;
+
+    public SlackApiClient(@Qualifier("slackRestTemplate") RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * @param retryAfter Slack が待ち時間を指定した場合のみ（429 の Retry-After）
+     */
+    public record Result(boolean ok, String ts, String error, boolean retryable, Duration retryAfter) {
+
+        static Result sent(String ts) {
+            return new Result(true, ts, null, false, null);
+        }
+
+        static Result failed(String error, boolean retryable) {
+            return new Result(false, null, error, retryable, null);
+        }
+    }
+
+    public boolean isConfigured() {
+        return slackToken != null && !slackToken.isBlank();
+    }
+
+    public Result postMessage(String channel, String text) {
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setBearerAuth(slackToken);
+
+            Map<String, Object> body = new HashMap<>();
+            body.put("channel", channel);
+            body.put("text", text);
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> apiRes = restTemplate.postForObject(
+                    apiBaseUrl + "/chat.postMessage",
+                    new HttpEntity<>(body, headers),
+                    Map.class
+            );
+
+            if (apiRes == null || !Boolean.TRUE.equals(apiRes.get("ok"))) {
+                String error = apiRes != null ? String.valueOf(apiRes.get("error")) : "unknown_error";
+                return Result.failed("Slack API error: " + error, RETRYABLE_ERRORS.contains(error));
+            }
+            Object tsObj = apiRes.get("ts");
+            return Result.sent(tsObj != null ? String.valueOf(tsObj) : null);
+        } catch (HttpStatusCodeException e) {
+            boolean tooManyRequests = e.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS);
+            Duration retryAfter = tooManyRequests ? parseRetryAfter(e.getResponseHeaders()) : null;
+            return new Result(false, null, "HTTP error: " + e.getMessage(),
+                    tooManyRequests || e.getStatusCode().is5xxServerError(), retryAfter);
+        } catch (RestClientException e) {
+            // 接続・タイムアウトなど
+            return Result.failed("HTTP error: " + e.getMessage(), true);
+        }
+    }
+
+    private static Duration parseRetryAfter(HttpHeaders headers) {
+        String value = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.demo.service;
+
+import com.example.demo.model.SlackOutbox;
+import com.example.demo.model.SlackOutboxStatus;
+import com.example.demo.repository.SlackOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * slack_outbox に保存したメッセージを有界のワーカープールで Slack へ送る。
+ * <p>
+ * 受け付けたメッセージはコミット後すぐに送信を試み、プールが埋まっている場合や再送待ちのものは
+ * slack.outbox.poll-interval ごとの巡回で拾う。送信前に行を SENDING にして権利を取る（複数ノードでも二重送信しない）。
+ * 失敗は再送可能なものだけ指数バックオフ（slack.outbox.base-backoff から倍々、slack.outbox.max-backoff まで、ゆらぎ付き）で
+ * slack.outbox.max-attempts 回まで再送し、それ以外は FAILED にする。
+ * 送信中にプロセスが止まった行は slack.outbox.lease を過ぎると再送対象に戻るので、再起動しても失われない
+ * （権利を取るたびに回数に数えるので、期限切れを繰り返す行も max-attempts を超えたら送らずに FAILED にする）。
+ */
+@Component
+public class SlackOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(SlackOutboxDispatcher.class);
+
+    private static final Set<SlackOutboxStatus> DUE = Set.of(SlackOutboxStatus.PENDING, SlackOutboxStatus.SENDING);
+
+    private final SlackOutboxRepository outboxRepository;
+    private final SlackApiClient slackApiClient;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final int maxAttempts;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+
+    // キュー投入済みで未完了の行（巡回で同じ行を重ねて投入しない）
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicLong backlog = new AtomicLong();
+    private final Timer deliveryLatency;
+    private final Counter sentCounter;
+    private final Counter retryCounter;
+    private final Counter failedCounter;
+
+    public SlackOutboxDispatcher(SlackOutboxRepository outboxRepository,
+                                 SlackApiClient slackApiClient,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${slack.outbox.workers:4}") int workers,
+                                 @Value("${slack.outbox.queue-capacity:100}") int queueCapacity,
+                                 @Value("${slack.outbox.max-attempts:8}") int maxAttempts,
+                                 @Value("${slack.outbox.base-backoff:2s}") Duration baseBackoff,
+                                 @Value("${slack.outbox.max-backoff:10m}") Duration maxBackoff,
+                                 @Value("${slack.outbox.lease:2m}") Duration lease) {
+        this.outboxRepository = outboxRepository;
+        this.slackApiClient = slackApiClient;
+        this.transactionTemplate = transactionTemplate;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "slack-outbox-" + threadNo.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("slack.outbox.backlog", backlog, AtomicLong::get)
+                .description("未送信（PENDING / SENDING）の Slack メッセージ数")
+                .register(meterRegistry);
+        Gauge.builder("slack.outbox.queue.depth", executor, e -> e.getQueue().size())
+                .description("送信ワーカーの待ち件数")
+                .register(meterRegistry);
+        this.deliveryLatency = Timer.builder("slack.outbox.delivery.latency")
+                .description("受け付けから Slack への送信完了までの時間")
+                .register(meterRegistry);
+        this.sentCounter = deliveries(meterRegistry, "sent");
+        this.retryCounter = deliveries(meterRegistry, "retry");
+        this.failedCounter = deliveries(meterRegistry, "failed");
+    }
+
+    /**
+     * 送信待ちに登録し、メッセージ ID を返す（送信は現在のトランザクションのコミット後）
+     */
+    public String enqueue(String channel, String text) {
+        LocalDateTime now = LocalDateTime.now();
+        SlackOutbox message = new SlackOutbox(null, UUID.randomUUID().toString(), channel, text,
+                SlackOutboxStatus.PENDING, 0, now, now, null, null, null);
+        SlackOutbox saved = transactionTemplate.execute(status -> outboxRepository.save(message));
+        backlog.incrementAndGet();
+        afterCommit(() -> submit(saved.getId()));
+        return saved.getMessageId();
+    }
+
+    @Scheduled(fixedDelayString = "${slack.outbox.poll-interval:PT1S}")
+    public void dispatchDue() {
+        try {
+            backlog.set(outboxRepository.countByStatusIn(DUE));
+            int capacity = executor.getQueue().remainingCapacity();
+            if (capacity == 0) {
+                return;
+            }
+            List<Long> due = outboxRepository.findDueIds(DUE, LocalDateTime.now(), PageRequest.of(0, capacity));
+            for (Long id : due) {
+                if (!submit(id)) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Slack outbox poll failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // プールが埋まっていれば false（次の巡回で拾う）
+    private boolean submit(Long id) {
+        if (!inFlight.add(id)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    deliver(id);
+                } catch (Exception e) {
+                    // SENDING のまま残った場合も lease 後に再送される
+                    log.error("Slack outbox delivery failed for {}", id, e);
+                } finally {
+                    inFlight.remove(id);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(id);
+            return false;
+        }
+    }
+
+    void deliver(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status -> outboxRepository.claim(id, DUE, now, now.plus(lease)));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+        SlackOutbox message = outboxRepository.findById(id).orElse(null);
+        if (message == null) {
+            return;
+        }
+        if (message.getAttempts() > maxAttempts) {
+            // 送信中に期限切れを繰り返した行（送れたかどうかは分からないが、これ以上は再送しない）
+            message.setStatus(SlackOutboxStatus.FAILED);
+            message.setLastError(truncate("lease expired after " + maxAttempts + " attempts: "
+                    + (message.getLastError() != null ? message.getLastError() : "no response")));
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.save(message));
+            failedCounter.increment();
+            backlog.decrementAndGet();
+            log.warn("Slack message {} failed: lease expired after {} attempts", message.getMessageId(), maxAttempts);
+            return;
+        }
+
+        SlackApiClient.Result result = slackApiClient.postMessage(message.getChannel(), message.getText());
+
+        LocalDateTime finishedAt = LocalDateTime.now();
+        if (result.ok()) {
+            message.setStatus(SlackOutboxStatus.SENT);
+            message.setSentAt(finishedAt);
+            message.setTs(result.ts());
+            message.setLastError(null);
+            deliveryLatency.record(Duration.between(message.getCreatedAt(), finishedAt));
+            sentCounter.increment();
+        } else if (result.retryable() && message.getAttempts() < maxAttempts) {
+            Duration delay = result.retryAfter() != null ? result.retryAfter() : backoff(message.getAttempts());
+            message.setStatus(SlackOutboxStatus.PENDING);
+            message.setNextAttemptAt(finishedAt.plus(delay));
+            message.setLastError(truncate(result.error()));
+            retryCounter.increment();
+        } else {
+            message.setStatus(SlackOutboxStatus.FAILED);
+            message.setLastError(truncate(result.error()));
+            failedCounter.increment();
+            log.warn("Slack message {} failed after {} attempts: {}", message.getMessageId(), message.getAttempts(), result.error());
+        }
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.save(message));
+        if (message.getStatus() != SlackOutboxStatus.PENDING) {
+            backlog.decrementAndGet();
+        }
+    }
+
+    // attempts 回目の失敗後の待ち時間（base * 2^(attempts-1) を上限で切り、半分から全体の間でゆらがせる）
+    Duration backoff(int attempts) {
+        long base = baseBackoff.toMillis();
+        long delay = attempts - 1 >= Long.numberOfLeadingZeros(Math.max(base, 1)) - 1
+                ? maxBackoff.toMillis()
+                : Math.min(maxBackoff.toMillis(), base << (attempts - 1));
+        return Duration.ofMillis(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    private static Counter deliveries(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("slack.outbox.deliveries")
+                .description("Slack への送信結果の件数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
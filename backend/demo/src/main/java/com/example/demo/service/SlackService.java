@@ -2,28 +2,37 @@ package com.example.demo.service;
 
 import com.example.demo.dto.SlackIntegrationRequest;
 import com.example.demo.dto.SlackIntegrationResponse;
+import com.example.demo.dto.SlackMessageStatusResponse;
+import com.example.demo.model.SlackOutbox;
+import com.example.demo.repository.SlackOutboxRepository;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.time.LocalDateTime;
+import java.util.Optional;
 
 @Service
 public class SlackService {
 
-    @Value("${slack.token:}")
-    private String slackToken;
-
     @Value("${slack.channel:}")
     private String defaultChannelId;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final SlackApiClient slackApiClient;
+    private final SlackOutboxDispatcher outboxDispatcher;
+    private final SlackOutboxRepository outboxRepository;
+
+    public SlackService(SlackApiClient slackApiClient,
+                        SlackOutboxDispatcher outboxDispatcher,
+                        SlackOutboxRepository outboxRepository) {
+        this.slackApiClient = slackApiClient;
+        this.outboxDispatcher = outboxDispatcher;
+        this.outboxRepository = outboxRepository;
+    }
 
+    // 送信待ちに登録してすぐ返す（送信結果は getMessageStatus で確認する）
     public SlackIntegrationResponse sendMessage(SlackIntegrationRequest request) {
         SlackIntegrationResponse response = new SlackIntegrationResponse();
 
@@ -33,57 +42,68 @@ public class SlackService {
             return response;
         }
 
-        String channel = (request.getChannelId() == null || request.getChannelId().isBlank())
-                ? defaultChannelId
-                : request.getChannelId();
-
-        if (channel == null || channel.isBlank()) {
+        String channel = resolveChannel(request.getChannelId());
+        String error = configurationError(channel);
+        if (error != null) {
             response.setStatus("error");
-            response.setErrorMessage("channelId が未指定で、デフォルトチャンネルも未設定です");
+            response.setErrorMessage(error);
             return response;
         }
 
-        if (slackToken == null || slackToken.isBlank()) {
+        response.setStatus("queued");
+        response.setMessageId(outboxDispatcher.enqueue(channel, request.getMessage()));
+        return response;
+    }
+
+    // 疎通確認用。送信待ちを通さずにその場で送り、Slack の応答をそのまま返す
+    public SlackIntegrationResponse sendMessageNow(String channelId, String message) {
+        SlackIntegrationResponse response = new SlackIntegrationResponse();
+        String channel = resolveChannel(channelId);
+        String error = configurationError(channel);
+        if (error != null) {
             response.setStatus("error");
-            response.setErrorMessage("slack.token が未設定です");
+            response.setErrorMessage(error);
             return response;
         }
 
-        // Slack Web API へPOST
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(slackToken);
-
-            Map<String, Object> body = new HashMap<>();
-            body.put("channel", channel);
-            body.put("text", request.getMessage());
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
+        SlackApiClient.Result result = slackApiClient.postMessage(channel, message);
+        if (result.ok()) {
+            response.setStatus("ok");
+            response.setTs(result.ts());
+        } else {
+            response.setStatus("error");
+            response.setErrorMessage(result.error());
+        }
+        return response;
+    }
 
-            @SuppressWarnings("unchecked")
-            Map<String, Object> apiRes = restTemplate.postForObject(
-                    "https://slack.com/api/chat.postMessage",
-                    entity,
-                    Map.class
-            );
+    @Transactional(readOnly = true)
+    public SlackMessageStatusResponse getMessageStatus(String messageId) {
+        SlackOutbox message = outboxRepository.findByMessageId(messageId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Slack message not found"));
+        SlackMessageStatusResponse response = new SlackMessageStatusResponse();
+        response.setMessageId(message.getMessageId());
+        response.setStatus(message.getStatus().name());
+        response.setAttempts(message.getAttempts());
+        response.setTs(message.getTs());
+        response.setErrorMessage(message.getLastError());
+        response.setCreatedAt(message.getCreatedAt().toString());
+        response.setSentAt(Optional.ofNullable(message.getSentAt()).map(LocalDateTime::toString).orElse(null));
+        return response;
+    }
 
-            boolean ok = apiRes != null && Boolean.TRUE.equals(apiRes.get("ok"));
-            if (!ok) {
-                response.setStatus("error");
-                Object err = apiRes != null ? apiRes.get("error") : "unknown_error";
-                response.setErrorMessage("Slack API error: " + String.valueOf(err));
-                return response;
-            }
+    private String resolveChannel(String channelId) {
+        return (channelId == null || channelId.isBlank()) ? defaultChannelId : channelId;
+    }
 
-            Object tsObj = apiRes.get("ts");
-            response.setStatus("ok");
-            response.setTs(tsObj != null ? String.valueOf(tsObj) : null);
-            return response;
-        } catch (RestClientException e) {
-            response.setStatus("error");
-            response.setErrorMessage("HTTP error: " + e.getMessage());
-            return response;
+    // 送信できない設定ならその理由、送信できれば null
+    private String configurationError(String channel) {
+        if (channel == null || channel.isBlank()) {
+            return "channelId が未指定で、デフォルトチャンネルも未設定です";
+        }
+        if (!slackApiClient.isConfigured()) {
+            return "slack.token が未設定です";
         }
+        return null;
     }
 }
@@ -0,0 +1,141 @@
+package com.example.demo.service;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * history.timestamp の文字列表現を 1 回の走査で解析する（例外も正規表現も使わない）。
+ * <p>
+ * 受け付ける形式は {@code yyyy-MM-dd(T| )HH:mm[:ss[.f…]][Z|±HH[[:]mm[:ss]]]}（小数秒は 9 桁まで、T/Z の大文字小文字は問わない）。
+ * オフセット付きの値はシステム既定のタイムゾーンのローカル日時に変換する。
+ * API からの ISO-8601 と、旧データの "yyyy-MM-dd HH:mm:ss[.ffffff]" の両方をこれで読む。
+ */
+public final class TimestampParser {
+
+    private static final int MAX_OFFSET_SECONDS = 18 * 3600;
+
+    private static final int[] POW10 = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000, 1_000_000_000};
+
+    private TimestampParser() {
+    }
+
+    /**
+     * 解析できない場合は null
+     */
+    public static LocalDateTime parse(String text) {
+        if (text == null || text.length() < 16) {
+            return null;
+        }
+        int length = text.length();
+
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if (year < 0 || text.charAt(4) != '-' || text.charAt(7) != '-'
+                || month < 1 || month > 12
+                || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+
+        char separator = text.charAt(10);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        if ((separator != 'T' && separator != 't' && separator != ' ')
+                || hour < 0 || hour > 23 || text.charAt(13) != ':' || minute < 0 || minute > 59) {
+            return null;
+        }
+
+        int position = 16;
+        int second = 0;
+        int nano = 0;
+        if (position < length && text.charAt(position) == ':') {
+            second = digits(text, position + 1, 2);
+            if (second < 0 || second > 59) {
+                return null;
+            }
+            position += 3;
+            if (position < length && text.charAt(position) == '.') {
+                int start = ++position;
+                while (position < length && position - start < 9 && isDigit(text.charAt(position))) {
+                    nano = nano * 10 + (text.charAt(position++) - '0');
+                }
+                int fractionDigits = position - start;
+                if (fractionDigits == 0 || (position < length && isDigit(text.charAt(position)))) {
+                    return null;
+                }
+                nano *= POW10[9 - fractionDigits];
+            }
+        }
+        LocalDateTime local = LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        if (position == length) {
+            return local;
+        }
+
+        int offsetSeconds = parseOffset(text, position);
+        if (offsetSeconds == Integer.MIN_VALUE) {
+            return null;
+        }
+        return local.atOffset(ZoneOffset.ofTotalSeconds(offsetSeconds))
+                .atZoneSameInstant(ZoneId.systemDefault())
+                .toLocalDateTime();
+    }
+
+    // "Z" / "±HH" / "±HHmm" / "±HH:mm" / "±HH:mm:ss" を秒に。不正なら Integer.MIN_VALUE
+    private static int parseOffset(String text, int position) {
+        int length = text.length();
+        char sign = text.charAt(position);
+        if (sign == 'Z' || sign == 'z') {
+            return position + 1 == length ? 0 : Integer.MIN_VALUE;
+        }
+        if (sign != '+' && sign != '-') {
+            return Integer.MIN_VALUE;
+        }
+        int hours = digits(text, position + 1, 2);
+        position += 3;
+        int minutes = 0;
+        int seconds = 0;
+        if (position < length) {
+            boolean colon = text.charAt(position) == ':';
+            if (colon) {
+                position++;
+            }
+            minutes = digits(text, position, 2);
+            position += 2;
+            if (colon && position < length && text.charAt(position) == ':') {
+                seconds = digits(text, position + 1, 2);
+                position += 3;
+            }
+        }
+        if (position != length || hours < 0 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+            return Integer.MIN_VALUE;
+        }
+        int total = hours * 3600 + minutes * 60 + seconds;
+        if (total > MAX_OFFSET_SECONDS) {
+            return Integer.MIN_VALUE;
+        }
+        return sign == '-' ? -total : total;
+    }
+
+    // text[start, start + count) の 10 進数。範囲外や数字以外を含む場合は -1
+    private static int digits(String text, int start, int count) {
+        if (start + count > text.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.demo.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 頻出件名の推定（count-min sketch + 候補表）。
+ * <p>
+ * 件数は幅 {@link #WIDTH} × 深さ {@link #DEPTH} の count-min sketch で数え（過大評価のみ、誤差は総数の約 e/WIDTH）、
+ * 推定値の大きい件名を最大 {@link #CANDIDATES} 件だけ候補として持つ。
+ * 合算は sketch の加算と候補の和集合の再推定で行うので、時間バケット間・ノード間でまとめられる。
+ */
+public final class TopKSketch {
+
+    static final int WIDTH = 1024;
+    static final int DEPTH = 4;
+    static final int CANDIDATES = 64;
+
+    private final long[] counts;
+    private final Map<String, Long> candidates;
+    private long total;
+
+    public TopKSketch() {
+        this(new long[WIDTH * DEPTH], new HashMap<>(), 0);
+    }
+
+    private TopKSketch(long[] counts, Map<String, Long> candidates, long total) {
+        this.counts = counts;
+        this.candidates = candidates;
+        this.total = total;
+    }
+
+    public record Entry(String key, long estimate) {
+    }
+
+    public void add(String key, long count) {
+        long hash = HyperLogLog.hash64(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            counts[index] += count;
+            estimate = Math.min(estimate, counts[index]);
+        }
+        total += count;
+        offer(key, estimate);
+    }
+
+    public long estimate(String key) {
+        long hash = HyperLogLog.hash64(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counts[index(hash, row)]);
+        }
+        return estimate;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public void merge(TopKSketch other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        List<String> keys = new ArrayList<>(candidates.keySet());
+        keys.addAll(other.candidates.keySet());
+        candidates.clear();
+        for (String key : keys) {
+            offer(key, estimate(key));
+        }
+    }
+
+    /**
+     * 推定件数の多い順に最大 k 件
+     */
+    public List<Entry> top(int k) {
+        PriorityQueue<Entry> heap = new PriorityQueue<>(Comparator.comparingLong(Entry::estimate));
+        candidates.forEach((key, estimate) -> {
+            heap.add(new Entry(key, estimate));
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        });
+        List<Entry> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingLong(Entry::estimate).reversed());
+        return result;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(total);
+            for (long count : counts) {
+                out.writeLong(count);
+            }
+            out.writeInt(candidates.size());
+            for (String key : candidates.keySet()) {
+                out.writeUTF(key);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static TopKSketch fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            long total = in.readLong();
+            long[] counts = new long[WIDTH * DEPTH];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = in.readLong();
+            }
+            TopKSketch sketch = new TopKSketch(counts, new HashMap<>(), total);
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String key = in.readUTF();
+                sketch.candidates.put(key, sketch.estimate(key));
+            }
+            return sketch;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void offer(String key, long estimate) {
+        if (candidates.containsKey(key) || candidates.size() < CANDIDATES) {
+            candidates.put(key, estimate);
+            return;
+        }
+        String smallest = null;
+        long smallestEstimate = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> candidate : candidates.entrySet()) {
+            if (candidate.getValue() < smallestEstimate) {
+                smallest = candidate.getKey();
+                smallestEstimate = candidate.getValue();
+            }
+        }
+        if (estimate > smallestEstimate) {
+            candidates.remove(smallest);
+            candidates.put(key, estimate);
+        }
+    }
+
+    // 行ごとのハッシュは h1 + row * h2（Kirsch-Mitzenmacher）
+    private static int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return row * WIDTH + Math.floorMod(h1 + row * h2, WIDTH);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.SimilarityKernel;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 旧 HistoryService#calculateSimilarity と {@link SimilarityKernel} の比較ベンチマーク。
+ * 比較 1 回あたりの割り当てバイト数とスループットを出力する（テストとしては実行されない）。
+ * <pre>
+ * mvn -q test-compile
+ * java -cp target/classes:target/test-classes com.example.demo.benchmark.SimilarityBenchmark
+ * </pre>
+ */
+public class SimilarityBenchmark {
+
+    private static final int DOCS = 200;
+    private static final int WORDS_PER_DOC = 120;
+    private static final int ROUNDS = 50;
+
+    public static void main(String[] args) {
+        List<String> docs = generateDocs();
+        int[][] tokens = new int[docs.size()][];
+        for (int i = 0; i < docs.size(); i++) {
+            tokens[i] = SimilarityKernel.tokenize(docs.get(i));
+        }
+
+        // ウォームアップ
+        runLegacy(docs, 5);
+        runKernel(tokens, 5);
+
+        report("legacy calculateSimilarity", docs.size(), () -> runLegacy(docs, ROUNDS));
+        report("SimilarityKernel.jaccard", docs.size(), () -> runKernel(tokens, ROUNDS));
+    }
+
+    private static void report(String name, int docs, Runnable body) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long comparisons = (long) ROUNDS * docs * docs;
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        body.run();
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("%-28s %,12.0f comparisons/s %,10.1f bytes/comparison%n",
+                name,
+                comparisons / (elapsed / 1_000_000_000.0),
+                (double) allocated / comparisons);
+    }
+
+    private static double runLegacy(List<String> docs, int rounds) {
+        double sink = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (String a : docs) {
+                for (String b : docs) {
+                    sink += legacySimilarity(a, b);
+                }
+            }
+        }
+        return sink;
+    }
+
+    private static double runKernel(int[][] tokens, int rounds) {
+        double sink = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (int[] a : tokens) {
+                for (int[] b : tokens) {
+                    sink += SimilarityKernel.jaccard(a, b);
+                }
+            }
+        }
+        return sink;
+    }
+
+    // 置き換え前の実装
+    private static double legacySimilarity(String text1, String text2) {
+        String normalized1 = text1.toLowerCase();
+        String normalized2 = text2.toLowerCase();
+        if (normalized1.equals(normalized2)) {
+            return 1.0;
+        }
+        Set<String> words1 = new HashSet<>(Arrays.asList(normalized1.split("\\s+")));
+        Set<String> words2 = new HashSet<>(Arrays.asList(normalized2.split("\\s+")));
+        Set<String> union = new HashSet<>(words1);
+        union.addAll(words2);
+        Set<String> intersection = new HashSet<>(words1);
+        intersection.retainAll(words2);
+        if (union.isEmpty()) {
+            return 0.0;
+        }
+        return (double) intersection.size() / union.size();
+    }
+
+    private static List<String> generateDocs() {
+        Random random = new Random(42);
+        List<String> docs = new ArrayList<>(DOCS);
+        for (int d = 0; d < DOCS; d++) {
+            StringBuilder sb = new StringBuilder();
+            for (int w = 0; w < WORDS_PER_DOC; w++) {
+                sb.append("Word").append(random.nextInt(800)).append(' ');
+            }
+            docs.add(sb.toString());
+        }
+        return docs;
+    }
+}
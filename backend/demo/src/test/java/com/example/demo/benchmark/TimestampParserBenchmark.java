@@ -0,0 +1,181 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.service.TimestampParser;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * 旧 HistoryService#parseTimestamp・旧 HistoryTimestampMigration#convertToTimestamp と
+ * {@link TimestampParser} の比較ベンチマーク。解析 1 回あたりの時間と割り当てバイト数を出力し、
+ * 旧実装が解析できる入力で結果が一致することも確認する（テストとしては実行されない）。
+ * <pre>
+ * mvn -q test-compile
+ * java -cp target/classes:target/test-classes com.example.demo.benchmark.TimestampParserBenchmark
+ * </pre>
+ */
+public class TimestampParserBenchmark {
+
+    private static final int INPUTS = 10_000;
+    private static final int ROUNDS = 50;
+
+    public static void main(String[] args) {
+        List<String> inputs = generateInputs();
+
+        verify(inputs, TimestampParserBenchmark::legacyServiceParse, "legacy parseTimestamp");
+        verify(inputs, TimestampParserBenchmark::legacyMigrationParse, "legacy convertToTimestamp");
+
+        // ウォームアップ
+        run(inputs, TimestampParserBenchmark::legacyServiceParse, 5);
+        run(inputs, TimestampParserBenchmark::legacyMigrationParse, 5);
+        run(inputs, TimestampParser::parse, 5);
+
+        report("legacy parseTimestamp", inputs, TimestampParserBenchmark::legacyServiceParse);
+        report("legacy convertToTimestamp", inputs, TimestampParserBenchmark::legacyMigrationParse);
+        report("TimestampParser.parse", inputs, TimestampParser::parse);
+    }
+
+    private static void verify(List<String> inputs, Function<String, LocalDateTime> legacy, String name) {
+        int mismatches = 0;
+        for (String input : inputs) {
+            LocalDateTime expected = legacy.apply(input);
+            if (expected != null && !Objects.equals(expected, TimestampParser.parse(input))) {
+                if (mismatches++ < 5) {
+                    System.out.printf("mismatch (%s): %s -> %s / %s%n", name, input, expected, TimestampParser.parse(input));
+                }
+            }
+        }
+        System.out.printf("%-28s %d mismatches%n", name, mismatches);
+    }
+
+    private static void report(String name, List<String> inputs, Function<String, LocalDateTime> parser) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long parses = (long) ROUNDS * inputs.size();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        run(inputs, parser, ROUNDS);
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("%-28s %,12.0f parses/s %,10.1f ns/parse %,10.1f bytes/parse%n",
+                name,
+                parses / (elapsed / 1_000_000_000.0),
+                (double) elapsed / parses,
+                (double) allocated / parses);
+    }
+
+    private static long run(List<String> inputs, Function<String, LocalDateTime> parser, int rounds) {
+        long sink = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (String input : inputs) {
+                LocalDateTime parsed = parser.apply(input);
+                if (parsed != null) {
+                    sink += parsed.getNano();
+                }
+            }
+        }
+        return sink;
+    }
+
+    // API 経由の ISO-8601（オフセット付き・なし）と旧データの空白区切りを混ぜる
+    private static List<String> generateInputs() {
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<String> inputs = new ArrayList<>(INPUTS);
+        for (int i = 0; i < INPUTS; i++) {
+            LocalDateTime value = base.plusSeconds(random.nextInt(365 * 24 * 3600)).withNano(random.nextInt(1_000_000) * 1000);
+            String date = value.toLocalDate().toString();
+            String time = String.format("%02d:%02d:%02d", value.getHour(), value.getMinute(), value.getSecond());
+            String micros = String.format(".%06d", value.getNano() / 1000);
+            switch (i % 5) {
+                case 0 -> inputs.add(date + "T" + time + micros + "Z");
+                case 1 -> inputs.add(date + "T" + time + "+09:00");
+                case 2 -> inputs.add(date + "T" + time + micros);
+                case 3 -> inputs.add(date + " " + time + micros);
+                default -> inputs.add(date + " " + time);
+            }
+        }
+        return inputs;
+    }
+
+    // 置き換え前の HistoryService#parseTimestamp（解析できない場合は null にして比較する）
+    private static LocalDateTime legacyServiceParse(String timestamp) {
+        try {
+            return OffsetDateTime.parse(timestamp)
+                    .atZoneSameInstant(ZoneId.systemDefault())
+                    .toLocalDateTime();
+        } catch (Exception offsetParseException) {
+            try {
+                return LocalDateTime.parse(timestamp);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+
+    // 置き換え前の HistoryTimestampMigration#convertToTimestamp
+    private static LocalDateTime legacyMigrationParse(String raw) {
+        try {
+            if (raw.endsWith("Z") || raw.matches(".*[+-][0-9:]{3,6}$")) {
+                OffsetDateTime offset = OffsetDateTime.parse(raw, ISO8601_WITH_OPTIONAL_FRACTION);
+                return offset.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            }
+            if (raw.contains("T")) {
+                return LocalDateTime.parse(raw, ISO8601_LOCAL);
+            }
+            if (raw.matches("^[0-9]{4}-[0-9]{2}-[0-9]{2} [0-9]{2}:[0-9]{2}:[0-9]{2}\\.[0-9]+$")) {
+                return LocalDateTime.parse(raw, SPACE_SEPARATED_MILLIS);
+            }
+            if (raw.matches("^[0-9]{4}-[0-9]{2}-[0-9]{2} [0-9]{2}:[0-9]{2}:[0-9]{2}$")) {
+                return LocalDateTime.parse(raw, SPACE_SEPARATED_SECONDS);
+            }
+        } catch (Exception ignore) {
+            // fall through to return null
+        }
+        return null;
+    }
+
+    private static final DateTimeFormatter ISO8601_WITH_OPTIONAL_FRACTION = new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .appendLiteral('T')
+            .appendValue(ChronoField.HOUR_OF_DAY, 2)
+            .appendLiteral(':')
+            .appendValue(ChronoField.MINUTE_OF_HOUR, 2)
+            .appendLiteral(':')
+            .appendValue(ChronoField.SECOND_OF_MINUTE, 2)
+            .appendFraction(ChronoField.MICRO_OF_SECOND, 0, 6, true)
+            .appendOffsetId()
+            .toFormatter();
+
+    private static final DateTimeFormatter ISO8601_LOCAL = new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .appendLiteral('T')
+            .appendValue(ChronoField.HOUR_OF_DAY, 2)
+            .appendLiteral(':')
+            .appendValue(ChronoField.MINUTE_OF_HOUR, 2)
+            .appendLiteral(':')
+            .appendValue(ChronoField.SECOND_OF_MINUTE, 2)
+            .appendFraction(ChronoField.MICRO_OF_SECOND, 0, 6, true)
+            .toFormatter();
+
+    private static final DateTimeFormatter SPACE_SEPARATED_MILLIS = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd HH:mm:ss")
+            .appendFraction(ChronoField.MICRO_OF_SECOND, 1, 6, true)
+            .toFormatter();
+
+    private static final DateTimeFormatter SPACE_SEPARATED_SECONDS = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd HH:mm:ss")
+            .toFormatter();
+}
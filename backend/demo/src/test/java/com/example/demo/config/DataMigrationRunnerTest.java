@@ -0,0 +1,68 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataMigrationRunnerTest {
+
+    private static DataMigration migration(String name, boolean fails) {
+        return new DataMigration() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public void migrate() {
+                if (fails) {
+                    throw new IllegalStateException(name + " failed");
+                }
+            }
+        };
+    }
+
+    @Test
+    void successfulMigrationsMakeTheApplicationReady() throws Exception {
+        DataMigrationProgress progress = new DataMigrationProgress();
+        List<Object> events = new ArrayList<>();
+        new DataMigrationRunner(List.of(migration("a", false), migration("b", false)), progress, events::add,
+                new SimpleMeterRegistry(), "sync").run(null);
+
+        assertThat(progress.isReady()).isTrue();
+        assertThat(progress.isFailed()).isFalse();
+        assertThat(new DataMigrationsHealthIndicator(progress).health().getStatus()).isEqualTo(Status.UP);
+        assertThat(new MigrationReadinessInterceptor(progress)
+                .preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null)).isTrue();
+        assertThat(events).singleElement().isInstanceOf(DataMigrationsCompletedEvent.class);
+    }
+
+    @Test
+    void failedMigrationKeepsReadinessDownAndDependentApisUnavailable() throws Exception {
+        DataMigrationProgress progress = new DataMigrationProgress();
+        List<Object> events = new ArrayList<>();
+        new DataMigrationRunner(List.of(migration("a", true), migration("b", false)), progress, events::add,
+                new SimpleMeterRegistry(), "sync").run(null);
+
+        assertThat(progress.isReady()).isFalse();
+        assertThat(progress.isFailed()).isTrue();
+        assertThat(progress.snapshot().isFailed()).isTrue();
+        assertThat(new DataMigrationsHealthIndicator(progress).health().getStatus()).isEqualTo(Status.DOWN);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(new MigrationReadinessInterceptor(progress)
+                .preHandle(new MockHttpServletRequest(), response, null)).isFalse();
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isNull();
+        // 後続のマイグレーションと完了イベント（ローダーの起動）は失敗しても続ける
+        assertThat(progress.snapshot().getMigrations()).extracting("state").containsExactly("FAILED", "COMPLETED");
+        assertThat(events).hasSize(1);
+    }
+}
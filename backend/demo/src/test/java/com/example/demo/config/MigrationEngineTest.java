@@ -0,0 +1,86 @@
+package com.example.demo.config;
+
+import com.example.demo.model.MigrationCheckpoint;
+import com.example.demo.repository.MigrationCheckpointRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MigrationEngineTest {
+
+    @Test
+    void rangeInsideOneCompletedRangeIsCovered() {
+        List<long[]> completed = List.of(new long[]{0, 100});
+
+        assertThat(MigrationEngine.isCovered(completed, 0, 100)).isTrue();
+        assertThat(MigrationEngine.isCovered(completed, 20, 50)).isTrue();
+        assertThat(MigrationEngine.isCovered(completed, 50, 101)).isFalse();
+    }
+
+    @Test
+    void adjacentAndOverlappingRangesCoverTogether() {
+        List<long[]> completed = List.of(new long[]{0, 50}, new long[]{40, 80}, new long[]{80, 120});
+
+        assertThat(MigrationEngine.isCovered(completed, 10, 120)).isTrue();
+    }
+
+    @Test
+    void gapBetweenRangesIsNotCovered() {
+        List<long[]> completed = List.of(new long[]{0, 50}, new long[]{51, 100});
+
+        assertThat(MigrationEngine.isCovered(completed, 0, 100)).isFalse();
+        assertThat(MigrationEngine.isCovered(completed, 51, 100)).isTrue();
+    }
+
+    @Test
+    void rangesAfterTheTargetAreIgnored() {
+        List<long[]> completed = List.of(new long[]{0, 10}, new long[]{200, 300});
+
+        assertThat(MigrationEngine.isCovered(completed, 0, 10)).isTrue();
+        assertThat(MigrationEngine.isCovered(completed, 10, 20)).isFalse();
+        assertThat(MigrationEngine.isCovered(List.of(), 0, 1)).isFalse();
+    }
+
+    @Test
+    void runSkipsChunksCoveredByCheckpointsOfADifferentChunkSize() throws InterruptedException {
+        // 以前はチャンク幅 3 で [1, 7) まで完了していた
+        MigrationCheckpointRepository repository = mock(MigrationCheckpointRepository.class);
+        when(repository.findCompleted("test")).thenReturn(List.of(
+                new MigrationCheckpoint(1L, "test", 1, 4, 3, 0, LocalDateTime.now()),
+                new MigrationCheckpoint(2L, "test", 4, 7, 3, 0, LocalDateTime.now())));
+        MigrationEngine engine = new MigrationEngine(repository, transactionTemplate(),
+                mock(DataMigrationProgress.class), 2, 2);
+        List<Long> migrated = Collections.synchronizedList(new ArrayList<>());
+
+        MigrationEngine.Result result = engine.run("test", 1, 10, (from, to) -> {
+            migrated.add(from);
+            return new MigrationEngine.ChunkResult((int) (to - from), to == 11 ? List.of(10L) : List.of());
+        });
+
+        assertThat(migrated).containsExactlyInAnyOrder(7L, 9L);
+        assertThat(result.chunks()).isEqualTo(5);
+        assertThat(result.skippedChunks()).isEqualTo(3);
+        assertThat(result.processed()).isEqualTo(4);
+        assertThat(result.failed()).isEqualTo(1);
+        assertThat(result.sampleFailedIds()).containsExactly(10L);
+    }
+
+    // トランザクションを張らずにそのまま実行する
+    private static TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(null);
+            }
+        };
+    }
+}
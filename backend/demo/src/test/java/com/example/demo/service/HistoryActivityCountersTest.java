@@ -0,0 +1,48 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistoryActivityCountersTest {
+
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    void idleUsersAreEvictedAfterRetention() {
+        HistoryActivityCounters counters = new HistoryActivityCounters(60, 100);
+        long now = System.currentTimeMillis() / MINUTE;
+        counters.record("old", (now - 61) * MINUTE);
+        counters.record("recent", (now - 58) * MINUTE);
+        counters.record("Recent", now * MINUTE);
+
+        counters.evictIdle(now);
+
+        assertThat(counters.trackedUsers()).isEqualTo(1);
+        assertThat(sum(counters.perMinute("recent", 60))).isEqualTo(2);
+        assertThat(sum(counters.perMinute("old", 60))).isZero();
+    }
+
+    @Test
+    void newUsersBeyondTheCapAreNotTracked() {
+        HistoryActivityCounters counters = new HistoryActivityCounters(60, 3);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            counters.record("user" + i, now);
+        }
+        // 既存のユーザーは上限に達した後も数える
+        counters.record("user0", now);
+
+        assertThat(counters.trackedUsers()).isEqualTo(3);
+        assertThat(sum(counters.perMinute("user0", 2))).isEqualTo(2);
+        assertThat(sum(counters.perMinute("user9", 2))).isZero();
+    }
+
+    private static long sum(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryAnalysisCacheTest {
+
+    @Test
+    void cachedResultIsReusedUntilRoleIsInvalidated() {
+        HistoryAnalysisCache cache = new HistoryAnalysisCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get("Sales", "q", loads::incrementAndGet)).isEqualTo(1);
+        assertThat(cache.get("sales", "q", loads::incrementAndGet)).isEqualTo(1);
+
+        cache.invalidate(List.of("hr"));
+        assertThat(cache.get("sales", "q", loads::incrementAndGet)).isEqualTo(1);
+
+        cache.invalidate(List.of("SALES"));
+        assertThat(cache.get("sales", "q", loads::incrementAndGet)).isEqualTo(2);
+    }
+
+    @Test
+    void entriesExpireAfterTtl() throws InterruptedException {
+        HistoryAnalysisCache cache = new HistoryAnalysisCache(new SimpleMeterRegistry(), 100, Duration.ofMillis(50));
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get("sales", "q", loads::incrementAndGet)).isEqualTo(1);
+        Thread.sleep(80);
+
+        assertThat(cache.get("sales", "q", loads::incrementAndGet)).isEqualTo(2);
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        HistoryAnalysisCache cache = new HistoryAnalysisCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+
+        assertThatThrownBy(() -> cache.get("sales", "q", () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.get("sales", "q", () -> "ok")).isEqualTo("ok");
+    }
+}
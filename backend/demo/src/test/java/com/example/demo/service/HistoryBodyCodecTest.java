@@ -0,0 +1,135 @@
+package com.example.demo.service;
+
+import com.example.demo.model.History;
+import com.example.demo.model.HistoryBodyDictionary;
+import com.example.demo.repository.HistoryBodyDictionaryRepository;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HistoryBodyCodecTest {
+
+    private static final Duration REFRESH = Duration.ofMinutes(5);
+
+    private static final String TEMPLATE = """
+            いつもお世話になっております。
+            株式会社サンプル 営業部の山田です。
+            %s
+            引き続きどうぞよろしくお願いいたします。
+            ----------------------------------------
+            株式会社サンプル 営業部 山田太郎
+            TEL: 03-1234-5678 / MAIL: yamada@example.com
+            """;
+
+    private static List<String> samples() {
+        List<String> samples = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            samples.add(TEMPLATE.formatted("見積書 No." + i + " をお送りします。"));
+        }
+        return samples;
+    }
+
+    private static HistoryBodyDictionary dictionary(long id) {
+        return new HistoryBodyDictionary(id, HistoryBodyCodec.trainDictionary(samples()), 20, LocalDateTime.now());
+    }
+
+    @Test
+    void trainDictionaryKeepsOnlyLinesSharedBySeveralSamples() {
+        String dictionary = new String(HistoryBodyCodec.trainDictionary(samples()), StandardCharsets.UTF_8);
+
+        assertThat(dictionary).contains("株式会社サンプル 営業部の山田です。");
+        assertThat(dictionary).doesNotContain("No.3");
+    }
+
+    @Test
+    void writeAndReadRoundTripWithDictionary() {
+        HistoryBodyDictionaryRepository repository = mock(HistoryBodyDictionaryRepository.class);
+        when(repository.findFirstByOrderByIdDesc()).thenReturn(Optional.of(dictionary(1L)));
+        HistoryBodyCodec codec = new HistoryBodyCodec(repository, true, REFRESH);
+
+        String body = TEMPLATE.formatted("請求書 No.99 を添付いたします。");
+        History history = new History();
+        codec.write(history, body);
+
+        assertThat(history.getBody()).isNull();
+        assertThat(history.getBodyDictionaryId()).isEqualTo(1L);
+        assertThat(history.getBodyCompressed().length).isLessThan(body.getBytes(StandardCharsets.UTF_8).length / 2);
+        assertThat(codec.read(history)).isEqualTo(body);
+    }
+
+    @Test
+    void incompressibleBodyStaysPlain() {
+        HistoryBodyDictionaryRepository repository = mock(HistoryBodyDictionaryRepository.class);
+        when(repository.findFirstByOrderByIdDesc()).thenReturn(Optional.of(dictionary(1L)));
+        HistoryBodyCodec codec = new HistoryBodyCodec(repository, true, REFRESH);
+
+        History history = new History();
+        codec.write(history, "了解");
+
+        assertThat(history.getBody()).isEqualTo("了解");
+        assertThat(history.getBodyCompressed()).isNull();
+        assertThat(codec.read(history)).isEqualTo("了解");
+    }
+
+    @Test
+    void loadedDictionariesServeStreamedRowsWithoutQueryingTheRepository() {
+        // 圧縮した側とは別のインスタンス（再起動直後でキャッシュが空）で読む
+        HistoryBodyDictionary old = dictionary(1L);
+        HistoryBodyDictionary current = new HistoryBodyDictionary(2L,
+                HistoryBodyCodec.trainDictionary(samples().subList(0, 5)), 5, LocalDateTime.now());
+        List<History> rows = new ArrayList<>();
+        for (HistoryBodyDictionary dictionary : List.of(old, current)) {
+            HistoryBodyDictionaryRepository writerRepository = mock(HistoryBodyDictionaryRepository.class);
+            when(writerRepository.findFirstByOrderByIdDesc()).thenReturn(Optional.of(dictionary));
+            HistoryBodyCodec writer = new HistoryBodyCodec(writerRepository, true, REFRESH);
+            for (int i = 0; i < 3; i++) {
+                History history = new History();
+                writer.write(history, TEMPLATE.formatted("辞書 " + dictionary.getId() + " の本文 " + i));
+                assertThat(history.getBodyDictionaryId()).isEqualTo(dictionary.getId());
+                rows.add(history);
+            }
+        }
+
+        HistoryBodyDictionaryRepository repository = mock(HistoryBodyDictionaryRepository.class);
+        when(repository.findAllIds()).thenReturn(List.of(1L, 2L));
+        when(repository.findAllById(any())).thenReturn(List.of(old, current));
+        // ストリーミング結果セットを開いている間は同じ接続で別のクエリを発行できない
+        when(repository.findById(anyLong())).thenThrow(new IllegalStateException(
+                "Streaming result set com.mysql.cj.protocol.a.result.ResultsetRowsStreaming is still active."));
+        HistoryBodyCodec reader = new HistoryBodyCodec(repository, true, REFRESH);
+
+        reader.loadDictionaries();
+        for (History row : rows) {
+            assertThat(reader.read(row)).contains("の本文 ");
+        }
+        verify(repository).findAllById(List.of(1L, 2L));
+    }
+
+    @Test
+    void activeDictionaryIsReadAgainAfterRefreshInterval() {
+        HistoryBodyDictionaryRepository repository = mock(HistoryBodyDictionaryRepository.class);
+        // 起動時は辞書がなく、後から他ノードが学習する
+        when(repository.findFirstByOrderByIdDesc()).thenReturn(Optional.empty(), Optional.of(dictionary(3L)));
+        HistoryBodyCodec cached = new HistoryBodyCodec(repository, true, REFRESH);
+        HistoryBodyCodec refreshed = new HistoryBodyCodec(repository, true, Duration.ZERO);
+
+        assertThat(cached.activeDictionary()).isEmpty();
+        assertThat(cached.activeDictionary()).isEmpty();
+        verify(repository, times(1)).findFirstByOrderByIdDesc();
+
+        assertThat(refreshed.activeDictionary()).map(HistoryBodyDictionary::getId).contains(3L);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.HistoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HistoryColumnarSnapshotTest {
+
+    private static final LocalDateTime NINE_AM = LocalDateTime.of(2025, 10, 1, 9, 0);
+
+    private record Row(Long getId, String getCreatedBy, String getSubject, LocalDateTime getTimestamp,
+                       Boolean getDuplicate) implements HistoryRepository.SnapshotRowView {
+    }
+
+    @Test
+    void rowsDeletedWhileLoadingAreNotResurrected() throws InterruptedException {
+        HistoryRepository repository = mock(HistoryRepository.class);
+        HistoryColumnarSnapshot snapshot = snapshot(repository);
+        // 1 行目を読んだ直後に 2 行目が削除され、その後に 2 行目の（削除前の）値が届く
+        when(repository.streamSnapshotRows()).thenReturn(Stream.<HistoryRepository.SnapshotRowView>of(
+                new Row(1L, "sales", "見積依頼", NINE_AM, false),
+                new Row(2L, "sales", "見積依頼", NINE_AM, false),
+                new Row(3L, "hr", "面接日程", NINE_AM, true)
+        ).peek(row -> {
+            if (row.getId() == 1L) {
+                snapshot.removeAfterCommit(2L);
+            }
+        }));
+
+        assertThat(snapshot.isLoaded()).isFalse();
+        snapshot.loadInBackground();
+        awaitLoaded(snapshot);
+
+        assertThat(snapshot.groupBy(HistoryColumnarSnapshot.Dimension.CREATED_BY, null, null, null))
+                .isEqualTo(Map.of("sales", 1L, "hr", 1L));
+    }
+
+    @Test
+    void rowsUpdatedWhileLoadingKeepTheNewerValue() throws InterruptedException {
+        HistoryRepository repository = mock(HistoryRepository.class);
+        HistoryColumnarSnapshot snapshot = snapshot(repository);
+        when(repository.streamSnapshotRows()).thenReturn(Stream.<HistoryRepository.SnapshotRowView>of(
+                new Row(1L, "sales", "見積依頼", NINE_AM, false),
+                new Row(2L, "sales", "見積依頼", NINE_AM, false)
+        ).peek(row -> {
+            if (row.getId() == 1L) {
+                snapshot.putAfterCommit(2L, "sales", "見積依頼", NINE_AM.plusHours(5), true);
+            }
+        }));
+
+        snapshot.loadInBackground();
+        awaitLoaded(snapshot);
+
+        assertThat(snapshot.groupBy(HistoryColumnarSnapshot.Dimension.HOUR, null, null, null))
+                .isEqualTo(Map.of("9", 1L, "14", 1L));
+        assertThat(snapshot.groupBy(HistoryColumnarSnapshot.Dimension.DUPLICATE, "SALES", null, null))
+                .isEqualTo(Map.of("false", 1L, "true", 1L));
+    }
+
+    @Test
+    void failedLoadIsRetriedAndReportedUntilItSucceeds() throws InterruptedException {
+        HistoryRepository repository = mock(HistoryRepository.class);
+        HistoryColumnarSnapshot snapshot = snapshot(repository);
+        when(repository.streamSnapshotRows())
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(Stream.of(new Row(1L, "sales", "見積依頼", NINE_AM, false)));
+
+        snapshot.loadInBackground();
+        awaitLoaded(snapshot);
+
+        assertThat(snapshot.getFailedLoadAttempts()).isEqualTo(2);
+        assertThat(snapshot.getLastLoadError()).isNull();
+        assertThat(snapshot.groupBy(HistoryColumnarSnapshot.Dimension.CREATED_BY, null, null, null))
+                .isEqualTo(Map.of("sales", 1L));
+    }
+
+    private static HistoryColumnarSnapshot snapshot(HistoryRepository repository) {
+        return new HistoryColumnarSnapshot(repository, transactionTemplate(), Duration.ofMillis(10), Duration.ofMillis(20));
+    }
+
+    private static void awaitLoaded(HistoryColumnarSnapshot snapshot) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!snapshot.isLoaded() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(snapshot.isLoaded()).isTrue();
+    }
+
+    // トランザクションを張らずにそのまま実行する
+    private static TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(null);
+            }
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.service;
+
+import com.example.demo.model.History;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistoryFingerprintTest {
+
+    private static final String BODY = "いつもお世話になっております。来週の定例会議の議題を共有します。";
+
+    @Test
+    void storedFingerprintRestoresTokensAndBandKeys() {
+        HistoryFingerprint fingerprint = HistoryFingerprint.of(BODY);
+        History history = new History();
+        fingerprint.applyTo(history);
+
+        HistoryFingerprint restored = HistoryFingerprint.fromStored(history.getShingles(), history.getSimHash());
+
+        assertThat(restored.tokens()).containsExactly(fingerprint.tokens());
+        assertThat(restored.bandKeys()).containsExactly(fingerprint.bandKeys());
+        assertThat(restored.simHash()).isEqualTo(fingerprint.simHash());
+        assertThat(restored.contentHash()).isNull();
+    }
+
+    @Test
+    void applyToWritesSimHashBlocksAndContentHash() {
+        HistoryFingerprint fingerprint = HistoryFingerprint.of(BODY);
+        History history = new History();
+        fingerprint.applyTo(history);
+
+        assertThat(history.getSimHashBlock0()).isEqualTo(SimHash.block(fingerprint.simHash(), 0));
+        assertThat(history.getSimHashBlock3()).isEqualTo(SimHash.block(fingerprint.simHash(), 3));
+        assertThat(history.getContentHash()).isEqualTo(SimilarityKernel.contentHash(BODY));
+    }
+
+    @Test
+    void restoredFingerprintDoesNotClearContentHash() {
+        History history = new History();
+        HistoryFingerprint.of(BODY).applyTo(history);
+        byte[] hash = history.getContentHash();
+
+        HistoryFingerprint.fromStored(history.getShingles(), history.getSimHash()).applyTo(history);
+
+        assertThat(history.getContentHash()).isEqualTo(hash);
+    }
+}
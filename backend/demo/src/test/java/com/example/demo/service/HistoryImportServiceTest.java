@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BulkImportResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class HistoryImportServiceTest {
+
+    // チャンクの書き込みは TransactionTemplate ごと差し替え、呼ばれた回数だけを見る
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final HistoryImportService service = new HistoryImportService(null, transactionTemplate, null, null,
+            null, null, null, null, null, new ObjectMapper(), 2);
+
+    @Test
+    void badTimestampStopsWithCommittedCountAndFailedRecord() throws IOException {
+        BulkImportResponse response = service.importHistory(ndjson(
+                "{\"subject\":\"a\",\"timestamp\":\"2024-01-01 10:00:00\"}",
+                "{\"subject\":\"b\",\"timestamp\":\"2024-01-01 10:01:00\"}",
+                "{\"subject\":\"c\",\"timestamp\":\"2024-01-01 10:02:00\"}",
+                "{\"subject\":\"d\",\"timestamp\":\"not a timestamp\"}"));
+
+        // 1 チャンク目（2 件）だけが書き込まれ、3 件目は書き込み前のチャンクごと捨てられる
+        assertThat(response.getImported()).isEqualTo(2);
+        assertThat(response.getFailedRecord()).isEqualTo(3L);
+        assertThat(response.getError()).isNotBlank();
+        verify(transactionTemplate, times(1)).execute(any());
+    }
+
+    @Test
+    void malformedJsonStopsAtTheBrokenRecord() throws IOException {
+        BulkImportResponse response = service.importHistory(ndjson(
+                "{\"subject\":\"a\"}",
+                "{\"subject\":"));
+
+        assertThat(response.getImported()).isZero();
+        assertThat(response.getFailedRecord()).isEqualTo(1L);
+        verify(transactionTemplate, times(0)).execute(any());
+    }
+
+    @Test
+    void completeImportHasNoError() throws IOException {
+        BulkImportResponse response = service.importHistory(ndjson("{\"subject\":\"a\"}", "{\"subject\":\"b\"}", "{\"subject\":\"c\"}"));
+
+        assertThat(response.getImported()).isEqualTo(3);
+        assertThat(response.getError()).isNull();
+        assertThat(response.getFailedRecord()).isNull();
+    }
+
+    private static ByteArrayInputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.HistoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HistorySearchIndexTest {
+
+    // DB からの再構築は使わないので依存は不要
+    private final HistorySearchIndex index = new HistorySearchIndex(null, null, null, 0.3);
+
+    @Test
+    void updatedAndDeletedDocumentsAreNotReturned() {
+        index.indexAfterCommit(1L, "定例会議", "来週の定例会議の議題");
+        index.indexAfterCommit(2L, "請求書", "今月分の請求書を送付します");
+        index.indexAfterCommit(3L, "会議室", "会議室の予約をお願いします");
+
+        index.indexAfterCommit(1L, "出張", "出張の日程調整");
+        index.removeAfterCommit(3L);
+
+        assertThat(ids(index.search("会議", 10))).isEmpty();
+        assertThat(ids(index.search("出張", 10))).containsExactly(1L);
+    }
+
+    @Test
+    void compactionKeepsLiveDocuments() {
+        for (long id = 1; id <= 50; id++) {
+            index.indexAfterCommit(id, "件名" + id, "会議の議事録 " + "議事".repeat((int) (id % 5) + 1));
+        }
+        // 同じ文書を繰り返し更新して削除済みの docNo を溜める
+        for (int round = 0; round < 20; round++) {
+            for (long id = 1; id <= 10; id++) {
+                index.indexAfterCommit(id, "件名" + id, "請求書の送付 " + round);
+            }
+        }
+        for (long id = 41; id <= 50; id++) {
+            index.removeAfterCommit(id);
+        }
+
+        List<HistorySearchIndex.Hit> before = index.search("議事録", 40);
+        List<HistorySearchIndex.Hit> billsBefore = index.search("請求書", 40);
+        index.compactIfNeeded();
+        List<HistorySearchIndex.Hit> after = index.search("議事録", 40);
+
+        // 文書頻度が生きている文書だけになるのでスコアは変わりうるが、一致する文書は変わらない
+        assertThat(ids(before)).hasSize(30).allMatch(id -> id > 10 && id <= 40);
+        assertThat(ids(after)).containsExactlyInAnyOrderElementsOf(ids(before));
+        assertThat(ids(index.search("請求書", 40))).containsExactlyInAnyOrderElementsOf(ids(billsBefore)).hasSize(10);
+
+        // 詰め直した後の追記・削除も反映される
+        index.indexAfterCommit(99L, "新規", "議事録の追加");
+        index.removeAfterCommit(11L);
+        assertThat(ids(index.search("議事録", 40))).contains(99L).doesNotContain(11L);
+    }
+
+    @Test
+    void searchReturnsTopScoresInOrder() {
+        index.indexAfterCommit(1L, "見積", "見積");
+        index.indexAfterCommit(2L, "見積", "見積書 見積 見積もり");
+        index.indexAfterCommit(3L, "連絡", "連絡事項");
+
+        List<HistorySearchIndex.Hit> hits = index.search("見積", 1);
+
+        assertThat(hits).hasSize(1);
+        assertThat(index.search("見積", 10)).extracting(HistorySearchIndex.Hit::score).isSortedAccordingTo((a, b) -> Double.compare(b, a));
+        assertThat(ids(index.search("見積", 10))).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void documentDeletedWhileRebuildReadsItIsNotResurrected() throws InterruptedException {
+        HistoryRepository repository = mock(HistoryRepository.class);
+        HistoryBodyCodec bodyCodec = mock(HistoryBodyCodec.class);
+        HistorySearchIndex rebuilt = new HistorySearchIndex(repository, transactionTemplate(), bodyCodec, 0.3);
+        CountDownLatch streamed = new CountDownLatch(1);
+        when(repository.streamSearchDocuments()).thenReturn(Stream.of(
+                document(1L, "定例会議", "来週の定例会議"),
+                document(2L, "会議室", "会議室の予約")).onClose(streamed::countDown));
+        when(bodyCodec.read(any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+        // 2 行目を読んだ後、索引に入れる前に削除がコミットされる
+        when(bodyCodec.read(eq("会議室の予約"), any(), any())).thenAnswer(invocation -> {
+            rebuilt.removeAfterCommit(2L);
+            return invocation.getArgument(0);
+        });
+
+        rebuilt.rebuildInBackground();
+        assertThat(streamed.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(ids(rebuilt.search("会議", 10))).containsExactly(1L);
+    }
+
+    private static HistoryRepository.SearchDocumentView document(Long id, String subject, String body) {
+        return new HistoryRepository.SearchDocumentView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getSubject() {
+                return subject;
+            }
+
+            @Override
+            public String getBody() {
+                return body;
+            }
+
+            @Override
+            public byte[] getBodyCompressed() {
+                return null;
+            }
+
+            @Override
+            public Long getBodyDictionaryId() {
+                return null;
+            }
+        };
+    }
+
+    // トランザクションを張らずにそのまま実行する
+    private static TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(null);
+            }
+        };
+    }
+
+    private static List<Long> ids(List<HistorySearchIndex.Hit> hits) {
+        return hits.stream().map(HistorySearchIndex.Hit::historyId).toList();
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.service;
+
+import com.example.demo.config.DataMigrationsCompletedEvent;
+import com.example.demo.model.HistorySketch;
+import com.example.demo.repository.HistorySketchRepository;
+import com.example.demo.repository.HistorySketchSeedRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class HistorySketchStoreTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 10, 1);
+
+    private final HistorySketchRepository sketchRepository = mock(HistorySketchRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final HistorySketchSeedRepository seedRepository = mock(HistorySketchSeedRepository.class);
+    private final HistorySketchStore store = new HistorySketchStore(sketchRepository, transactionTemplate(), jdbcTemplate, seedRepository);
+    // DB 上の history_sketch（scope → 行）
+    private final Map<String, HistorySketch> table = new ConcurrentHashMap<>();
+
+    HistorySketchStoreTest() {
+        when(sketchRepository.findForUpdate(anyString(), eq(DAY)))
+                .thenAnswer(invocation -> Optional.ofNullable(table.get(invocation.<String>getArgument(0))));
+        when(sketchRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+            HistorySketch row = invocation.getArgument(0);
+            row.setId(1L);
+            table.put(row.getScope(), row);
+            return row;
+        });
+        when(sketchRepository.findByScopeAndBucketDateBetween(anyString(), eq(DAY), eq(DAY)))
+                .thenAnswer(invocation -> Optional.ofNullable(table.get(invocation.<String>getArgument(0))).stream().toList());
+    }
+
+    @Test
+    void seedIsSkippedAndFlushHeldWhenAMigrationFailed() {
+        store.recordAfterCommit("alice", "見積依頼", DAY.atTime(9, 0));
+
+        store.rebuildInBackground(new DataMigrationsCompletedEvent(Duration.ZERO, true));
+        store.flush();
+
+        verifyNoInteractions(seedRepository, jdbcTemplate);
+        verify(sketchRepository, never()).saveAndFlush(any());
+        // 書き戻しはしないが、照会にはメモリ上の差分が入る
+        assertThat(store.topSubjects("alice", DAY, DAY, 1)).extracting(TopKSketch.Entry::estimate).containsExactly(1L);
+    }
+
+    @Test
+    void deltasRecordedBeforeTheSnapshotAreCountedOnceFromTheRollup() throws Exception {
+        // rollup に含まれる保存（コミット後の差分も記録済み）
+        store.recordAfterCommit("alice", "見積依頼", DAY.atTime(9, 0));
+        doAnswer(invocation -> {
+            // スナップショットの後にコミットされた保存は rollup に含まれず、差分だけで数える
+            store.recordAfterCommit("alice", "見積依頼", DAY.atTime(10, 0));
+            ResultSet row = mock(ResultSet.class);
+            when(row.getString(1)).thenReturn("alice");
+            when(row.getDate(2)).thenReturn(Date.valueOf(DAY));
+            when(row.getString(3)).thenReturn("見積依頼");
+            when(row.getLong(4)).thenReturn(1L);
+            invocation.<RowCallbackHandler>getArgument(1).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        store.rebuildInBackground(new DataMigrationsCompletedEvent(Duration.ZERO, false));
+        verify(seedRepository, timeout(5000)).saveAndFlush(any());
+
+        assertThat(store.topSubjects("alice", DAY, DAY, 1)).extracting(TopKSketch.Entry::estimate).containsExactly(2L);
+        assertThat(store.distinctUsers(DAY, DAY)).isEqualTo(1);
+    }
+
+    @Test
+    void seedIsNotRepeatedOnceMarked() {
+        when(seedRepository.existsById(any())).thenReturn(true);
+        store.recordAfterCommit("alice", "見積依頼", DAY.atTime(12, 0));
+
+        store.rebuildInBackground(new DataMigrationsCompletedEvent(Duration.ZERO, false));
+
+        verify(seedRepository, timeout(5000)).existsById(any());
+        verify(jdbcTemplate, never()).update(anyString());
+        assertThat(store.topSubjects("alice", DAY, DAY, 1)).extracting(TopKSketch.Entry::estimate).containsExactly(1L);
+    }
+
+    // トランザクションを張らずにそのまま実行する
+    private static TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(null);
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimateStaysWithinFewPercent() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add("user" + i);
+        }
+
+        assertThat((double) sketch.estimate()).isCloseTo(100_000, within(5_000.0));
+    }
+
+    @Test
+    void mergeEqualsSketchOfUnionAndIgnoresDuplicates() {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (int i = 0; i < 30_000; i++) {
+            left.add("user" + i);
+            union.add("user" + i);
+        }
+        // 20000 〜 29999 は両方に含まれる
+        for (int i = 20_000; i < 50_000; i++) {
+            right.add("user" + i);
+            union.add("user" + i);
+        }
+
+        left.merge(right);
+
+        assertThat(left.toBytes()).isEqualTo(union.toBytes());
+        assertThat((double) left.estimate()).isCloseTo(50_000, within(2_500.0));
+    }
+
+    @Test
+    void mergeIsOrderIndependent() {
+        HyperLogLog a = new HyperLogLog();
+        HyperLogLog b = new HyperLogLog();
+        for (int i = 0; i < 1_000; i++) {
+            a.add("a" + i);
+            b.add("b" + i);
+        }
+
+        HyperLogLog ab = HyperLogLog.fromBytes(a.toBytes());
+        ab.merge(b);
+        HyperLogLog ba = HyperLogLog.fromBytes(b.toBytes());
+        ba.merge(a);
+
+        assertThat(ab.toBytes()).isEqualTo(ba.toBytes());
+    }
+
+    @Test
+    void smallCardinalityIsNearlyExact() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 10; i++) {
+            sketch.add("user" + i);
+            sketch.add("user" + i);
+        }
+
+        assertThat(sketch.estimate()).isEqualTo(10);
+    }
+
+    @Test
+    void fromBytesRejectsWrongSize() {
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[10]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
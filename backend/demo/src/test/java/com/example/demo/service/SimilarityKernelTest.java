@@ -0,0 +1,84 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimilarityKernelTest {
+
+    @Test
+    void encodeDecodeRoundTripsSortedTokens() {
+        int[] tokens = SimilarityKernel.tokenize("お世話になっております。Meeting notes for 来週の定例");
+        assertThat(SimilarityKernel.decode(SimilarityKernel.encode(tokens))).containsExactly(tokens);
+    }
+
+    @Test
+    void encodeDecodeRoundTripsIntRangeExtremes() {
+        int[] tokens = {Integer.MIN_VALUE, -1, 0, 1, 127, 128, 16_384, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+        assertThat(SimilarityKernel.decode(SimilarityKernel.encode(tokens))).containsExactly(tokens);
+    }
+
+    @Test
+    void encodeDecodeRoundTripsRandomTokens() {
+        Random random = new Random(7);
+        for (int round = 0; round < 100; round++) {
+            int[] tokens = random.ints(random.nextInt(500), Integer.MIN_VALUE, Integer.MAX_VALUE).sorted().distinct().toArray();
+            assertThat(SimilarityKernel.decode(SimilarityKernel.encode(tokens))).containsExactly(tokens);
+        }
+    }
+
+    @Test
+    void decodeOfEmptyInputIsEmpty() {
+        assertThat(SimilarityKernel.decode(null)).isEmpty();
+        assertThat(SimilarityKernel.decode(new byte[0])).isEmpty();
+        assertThat(SimilarityKernel.encode(new int[0])).isEmpty();
+    }
+
+    @Test
+    void bigramsPackTwoCharactersAfterNfkcLowercaseAndWhitespaceRemoval() {
+        // 全角英字・半角カナは NFKC で統一され、空白は読み飛ばす
+        int[] bigrams = SimilarityKernel.bigrams("ＡＢ c\tｶ");
+        assertThat(bigrams).containsExactly(pack('a', 'b'), pack('b', 'c'), pack('c', 'カ'));
+    }
+
+    @Test
+    void bigramOfSingleCharacterIsUnigram() {
+        assertThat(SimilarityKernel.bigrams(" x ")).containsExactly('x' << 16);
+        assertThat(SimilarityKernel.bigrams("   ")).isEmpty();
+        assertThat(SimilarityKernel.bigrams(null)).isEmpty();
+    }
+
+    @Test
+    void tokenizeIsSortedAndUnique() {
+        int[] tokens = SimilarityKernel.tokenize("abababab");
+        assertThat(tokens).containsExactly(sorted(pack('a', 'b'), pack('b', 'a')));
+    }
+
+    @Test
+    void jaccardOfNormalizedVariantsIsOne() {
+        int[] a = SimilarityKernel.tokenize("Ｈｅｌｌｏ　World");
+        int[] b = SimilarityKernel.tokenize("hello world");
+        assertThat(SimilarityKernel.jaccard(a, b)).isEqualTo(1.0);
+        assertThat(SimilarityKernel.contentHash("Ｈｅｌｌｏ　World")).isEqualTo(SimilarityKernel.contentHash("hello world"));
+    }
+
+    @Test
+    void jaccardCountsSharedTokens() {
+        assertThat(SimilarityKernel.jaccard(new int[]{1, 2, 3}, new int[]{2, 3, 4})).isEqualTo(0.5);
+        assertThat(SimilarityKernel.jaccard(new int[0], new int[0])).isEqualTo(1.0);
+        assertThat(SimilarityKernel.jaccard(new int[]{1}, new int[0])).isEqualTo(0.0);
+    }
+
+    private static int pack(char first, char second) {
+        return (first << 16) | second;
+    }
+
+    private static int[] sorted(int... values) {
+        int[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
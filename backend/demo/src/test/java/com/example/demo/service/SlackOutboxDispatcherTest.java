@@ -0,0 +1,250 @@
+package com.example.demo.service;
+
+import com.example.demo.model.SlackOutbox;
+import com.example.demo.model.SlackOutboxStatus;
+import com.example.demo.repository.SlackOutboxRepository;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SlackOutboxDispatcherTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(2);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(10);
+    private static final Duration LEASE = Duration.ofMinutes(2);
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    // スタブが返す応答（ステータス、本文、Retry-After）
+    private volatile int responseStatus = 200;
+    private volatile String responseBody = "{\"ok\":true,\"ts\":\"1700000000.000100\"}";
+    private volatile String retryAfter;
+
+    // slack_outbox の代わり（claim は JPQL と同じ条件で権利を取る）
+    private final Map<Long, SlackOutbox> rows = new ConcurrentHashMap<>();
+    private final SlackOutboxRepository repository = mock(SlackOutboxRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SlackOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/chat.postMessage", exchange -> {
+            requests.incrementAndGet();
+            try (InputStream in = exchange.getRequestBody()) {
+                in.readAllBytes();
+            }
+            byte[] body = responseBody.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if (retryAfter != null) {
+                exchange.getResponseHeaders().set("Retry-After", retryAfter);
+            }
+            exchange.sendResponseHeaders(responseStatus, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        SlackApiClient client = new SlackApiClient(new RestTemplate());
+        ReflectionTestUtils.setField(client, "slackToken", "xoxb-test");
+        ReflectionTestUtils.setField(client, "apiBaseUrl", "http://127.0.0.1:" + server.getAddress().getPort() + "/api");
+
+        when(repository.claim(anyLong(), anyCollection(), any(), any())).thenAnswer(invocation -> {
+            SlackOutbox row = rows.get(invocation.<Long>getArgument(0));
+            Collection<SlackOutboxStatus> statuses = invocation.getArgument(1);
+            LocalDateTime now = invocation.getArgument(2);
+            if (row == null || !statuses.contains(row.getStatus()) || row.getNextAttemptAt().isAfter(now)) {
+                return 0;
+            }
+            row.setStatus(SlackOutboxStatus.SENDING);
+            row.setNextAttemptAt(invocation.getArgument(3));
+            row.setAttempts(row.getAttempts() + 1);
+            return 1;
+        });
+        when(repository.findById(anyLong())).thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.<Long>getArgument(0))));
+        when(repository.save(any())).thenAnswer(invocation -> {
+            SlackOutbox row = invocation.getArgument(0);
+            rows.put(row.getId(), row);
+            return row;
+        });
+
+        dispatcher = new SlackOutboxDispatcher(repository, client, transactionTemplate(), meterRegistry,
+                1, 10, MAX_ATTEMPTS, BASE_BACKOFF, MAX_BACKOFF, LEASE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void rowUnderAnotherLeaseIsNotSentAgain() {
+        SlackOutbox row = row(1L, SlackOutboxStatus.SENDING, 1, LocalDateTime.now().plusMinutes(1));
+
+        dispatcher.deliver(1L);
+
+        assertThat(requests).hasValue(0);
+        assertThat(row.getStatus()).isEqualTo(SlackOutboxStatus.SENDING);
+        assertThat(row.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredLeaseIsReclaimedAndSent() {
+        SlackOutbox row = row(1L, SlackOutboxStatus.SENDING, 1, LocalDateTime.now().minusSeconds(1));
+
+        dispatcher.deliver(1L);
+
+        assertThat(requests).hasValue(1);
+        assertThat(row.getStatus()).isEqualTo(SlackOutboxStatus.SENT);
+        assertThat(row.getAttempts()).isEqualTo(2);
+        assertThat(row.getTs()).isEqualTo("1700000000.000100");
+        assertThat(deliveries("sent")).isEqualTo(1.0);
+    }
+
+    @Test
+    void retryableErrorIsRescheduledWithinBackoff() {
+        responseBody = "{\"ok\":false,\"error\":\"internal_error\"}";
+        SlackOutbox row = row(1L, SlackOutboxStatus.PENDING, 0, LocalDateTime.now().minusSeconds(1));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.deliver(1L);
+
+        assertThat(row.getStatus()).isEqualTo(SlackOutboxStatus.PENDING);
+        assertThat(row.getLastError()).contains("internal_error");
+        // 1 回目の失敗後は base の半分から base まで
+        assertThat(row.getNextAttemptAt()).isAfterOrEqualTo(before.plus(BASE_BACKOFF.dividedBy(2)))
+                .isBefore(LocalDateTime.now().plus(BASE_BACKOFF).plusSeconds(1));
+        assertThat(deliveries("retry")).isEqualTo(1.0);
+    }
+
+    @Test
+    void serverErrorIsRetryable() {
+        responseStatus = 503;
+        responseBody = "{}";
+        SlackOutbox row = row(1L, SlackOutboxStatus.PENDING, 0, LocalDateTime.now().minusSeconds(1));
+
+        dispatcher.deliver(1L);
+
+        assertThat(row.getStatus()).isEqualTo(SlackOutboxStatus.PENDING);
+    }
+
+    @Test
+    void terminalErrorFailsImmediately() {
+        responseBody = "{\"ok\":false,\"error\":\"channel_not_found\"}";
+        SlackOutbox row = row(1L, SlackOutboxStatus.PENDING, 0, LocalDateTime.now().minusSeconds(1));
+
+        dispatcher.deliver(1L);
+
+        assertThat(requests).hasValue(1);
+        assertThat(row.getStatus()).isEqualTo(SlackOutboxStatus.FAILED);
+        assertThat(row.getLastError()).contains("channel_not_found");
+        assertThat(deliveries("failed")).isEqualTo(1.0);
+    }
+
+    @Test
+    void retryAfterOverridesBackoff() {
+        responseStatus = 429;
+        responseBody = "{\"ok\":false,\"error\":\"ratelimited\"}";
+        retryAfter = "30";
+        SlackOutbox row = row(1L, SlackOutboxStatus.PENDING, 0, LocalDateTime.now().minusSeconds(1));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.deliver(1L);
+
+        assertThat(row.getStatus()).isEqualTo(SlackOutboxStatus.PENDING);
+        assertThat(row.getNextAttemptAt()).isAfterOrEqualTo(before.plusSeconds(30))
+                .isBefore(LocalDateTime.now().plusSeconds(31));
+    }
+
+    @Test
+    void backoffDoublesWithJitterAndStaysWithinMax() {
+        for (int attempts = 1; attempts <= 100; attempts++) {
+            long ceiling = attempts - 1 < 20
+                    ? Math.min(MAX_BACKOFF.toMillis(), BASE_BACKOFF.toMillis() << (attempts - 1))
+                    : MAX_BACKOFF.toMillis();
+            for (int sample = 0; sample < 20; sample++) {
+                long delay = dispatcher.backoff(attempts).toMillis();
+                assertThat(delay).as("attempts=%d", attempts).isBetween(ceiling / 2, ceiling);
+            }
+        }
+    }
+
+    @Test
+    void retryableErrorOnLastAttemptFails() {
+        responseBody = "{\"ok\":false,\"error\":\"internal_error\"}";
+        SlackOutbox row = row(1L, SlackOutboxStatus.PENDING, MAX_ATTEMPTS - 1, LocalDateTime.now().minusSeconds(1));
+
+        dispatcher.deliver(1L);
+
+        assertThat(requests).hasValue(1);
+        assertThat(row.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(row.getStatus()).isEqualTo(SlackOutboxStatus.FAILED);
+    }
+
+    @Test
+    void leaseExpiringPastMaxAttemptsFailsWithoutSending() {
+        SlackOutbox row = row(1L, SlackOutboxStatus.SENDING, MAX_ATTEMPTS, LocalDateTime.now().minusSeconds(1));
+
+        dispatcher.deliver(1L);
+
+        assertThat(requests).hasValue(0);
+        assertThat(row.getStatus()).isEqualTo(SlackOutboxStatus.FAILED);
+        assertThat(row.getLastError()).contains("lease expired");
+        assertThat(deliveries("failed")).isEqualTo(1.0);
+
+        // FAILED になった行はもう権利を取れない
+        dispatcher.deliver(1L);
+        assertThat(row.getAttempts()).isEqualTo(MAX_ATTEMPTS + 1);
+    }
+
+    private SlackOutbox row(Long id, SlackOutboxStatus status, int attempts, LocalDateTime nextAttemptAt) {
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(5);
+        SlackOutbox row = new SlackOutbox(id, "message-" + id, "general", "hello", status, attempts,
+                nextAttemptAt, createdAt, null, null, null);
+        rows.put(id, row);
+        return row;
+    }
+
+    private double deliveries(String result) {
+        return meterRegistry.get("slack.outbox.deliveries").tag("result", result).counter().count();
+    }
+
+    // トランザクションを張らずにそのまま実行する
+    private static TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(null);
+            }
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.SlackIntegrationResponse;
+import com.example.demo.repository.SlackOutboxRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SlackServiceTest {
+
+    private final SlackApiClient slackApiClient = mock(SlackApiClient.class);
+    private final SlackOutboxRepository outboxRepository = mock(SlackOutboxRepository.class);
+    private final SlackService slackService = new SlackService(slackApiClient, mock(SlackOutboxDispatcher.class), outboxRepository);
+
+    @Test
+    void unknownMessageIdIsNotFound() {
+        when(outboxRepository.findByMessageId("missing")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> slackService.getMessageStatus("missing"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    @Test
+    void sendMessageNowReportsSlackResult() {
+        when(slackApiClient.isConfigured()).thenReturn(true);
+        when(slackApiClient.postMessage("general", "hello"))
+                .thenReturn(new SlackApiClient.Result(true, "1700000000.000100", null, false, null));
+        when(slackApiClient.postMessage("missing", "hello"))
+                .thenReturn(new SlackApiClient.Result(false, null, "channel_not_found", false, null));
+
+        SlackIntegrationResponse sent = slackService.sendMessageNow("general", "hello");
+        SlackIntegrationResponse failed = slackService.sendMessageNow("missing", "hello");
+
+        assertThat(sent.getStatus()).isEqualTo("ok");
+        assertThat(sent.getTs()).isEqualTo("1700000000.000100");
+        assertThat(failed.getStatus()).isEqualTo("error");
+        assertThat(failed.getErrorMessage()).isEqualTo("channel_not_found");
+    }
+
+    @Test
+    void sendMessageNowRequiresToken() {
+        when(slackApiClient.isConfigured()).thenReturn(false);
+
+        SlackIntegrationResponse response = slackService.sendMessageNow("general", "hello");
+
+        assertThat(response.getStatus()).isEqualTo("error");
+        assertThat(response.getErrorMessage()).isEqualTo("slack.token が未設定です");
+    }
+}
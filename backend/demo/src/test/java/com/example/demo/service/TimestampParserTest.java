@@ -0,0 +1,87 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimestampParserTest {
+
+    private static LocalDateTime local(LocalDateTime dateTime, ZoneOffset offset) {
+        return dateTime.atOffset(offset).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
+    @Test
+    void parsesLocalDateTimeWithTOrSpace() {
+        LocalDateTime expected = LocalDateTime.of(2025, 10, 1, 9, 30, 15);
+
+        assertThat(TimestampParser.parse("2025-10-01T09:30:15")).isEqualTo(expected);
+        assertThat(TimestampParser.parse("2025-10-01 09:30:15")).isEqualTo(expected);
+        assertThat(TimestampParser.parse("2025-10-01t09:30:15")).isEqualTo(expected);
+        assertThat(TimestampParser.parse("2025-10-01 09:30")).isEqualTo(expected.withSecond(0));
+    }
+
+    @Test
+    void parsesOneToNineFractionDigitsAfterSpace() {
+        assertThat(TimestampParser.parse("2025-10-01 09:30:15.1")).isEqualTo(LocalDateTime.of(2025, 10, 1, 9, 30, 15, 100_000_000));
+        assertThat(TimestampParser.parse("2025-10-01 09:30:15.123")).isEqualTo(LocalDateTime.of(2025, 10, 1, 9, 30, 15, 123_000_000));
+        assertThat(TimestampParser.parse("2025-10-01 09:30:15.123456")).isEqualTo(LocalDateTime.of(2025, 10, 1, 9, 30, 15, 123_456_000));
+        assertThat(TimestampParser.parse("2025-10-01 09:30:15.123456789")).isEqualTo(LocalDateTime.of(2025, 10, 1, 9, 30, 15, 123_456_789));
+        assertThat(TimestampParser.parse("2025-10-01 09:30:15.000000001")).isEqualTo(LocalDateTime.of(2025, 10, 1, 9, 30, 15, 1));
+    }
+
+    @Test
+    void convertsOffsetsToSystemLocalTime() {
+        LocalDateTime base = LocalDateTime.of(2025, 10, 1, 9, 30, 15);
+
+        assertThat(TimestampParser.parse("2025-10-01T09:30:15Z")).isEqualTo(local(base, ZoneOffset.UTC));
+        assertThat(TimestampParser.parse("2025-10-01T09:30:15z")).isEqualTo(local(base, ZoneOffset.UTC));
+        assertThat(TimestampParser.parse("2025-10-01T09:30:15+09:00")).isEqualTo(local(base, ZoneOffset.ofHours(9)));
+        assertThat(TimestampParser.parse("2025-10-01T09:30:15+0900")).isEqualTo(local(base, ZoneOffset.ofHours(9)));
+        assertThat(TimestampParser.parse("2025-10-01T09:30:15+09")).isEqualTo(local(base, ZoneOffset.ofHours(9)));
+        assertThat(TimestampParser.parse("2025-10-01T09:30:15-05:30:15"))
+                .isEqualTo(local(base, ZoneOffset.ofHoursMinutesSeconds(-5, -30, -15)));
+        assertThat(TimestampParser.parse("2025-10-01 09:30:15.5+09:00"))
+                .isEqualTo(local(base.withNano(500_000_000), ZoneOffset.ofHours(9)));
+    }
+
+    @Test
+    void acceptsLeapDayOnlyInLeapYears() {
+        assertThat(TimestampParser.parse("2024-02-29 00:00:00")).isEqualTo(LocalDateTime.of(2024, 2, 29, 0, 0));
+        assertThat(TimestampParser.parse("2025-02-29 00:00:00")).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "2025-02-30 10:00:00",          // 存在しない日
+            "2025-04-31 10:00:00",
+            "2025-10-00 10:00:00",
+            "2025-13-01 10:00:00",
+            "2025-10-01 24:00:00",          // 時
+            "2025-10-01 09:60:00",          // 分
+            "2025-10-01 09:30:60",          // 秒
+            "2025-10-01 09:30:15.",         // 小数点だけ
+            "2025-10-01 09:30:15.1234567890", // 10 桁以上の小数秒
+            "2025-10-01T09:30:15+19:00",    // 範囲外のオフセット
+            "2025-10-01T09:30:15+09:60",
+            "2025-10-01T09:30:15+9:00",
+            "2025-10-01T09:30:15 ",
+            "2025-10-01X09:30:15",
+            "2025/10/01 09:30:15",
+            "2025-10-01",
+            ""
+    })
+    void rejectsInvalidValues(String text) {
+        assertThat(TimestampParser.parse(text)).isNull();
+    }
+
+    @Test
+    void rejectsNull() {
+        assertThat(TimestampParser.parse(null)).isNull();
+    }
+}
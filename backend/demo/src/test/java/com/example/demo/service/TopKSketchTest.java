@@ -0,0 +1,76 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopKSketchTest {
+
+    @Test
+    void topReturnsHeavyHittersInOrder() {
+        TopKSketch sketch = new TopKSketch();
+        sketch.add("見積依頼", 50);
+        sketch.add("請求書送付", 30);
+        sketch.add("日程調整", 10);
+        for (int i = 0; i < 200; i++) {
+            sketch.add("その他 " + i, 1);
+        }
+
+        List<TopKSketch.Entry> top = sketch.top(3);
+
+        assertThat(top).extracting(TopKSketch.Entry::key).containsExactly("見積依頼", "請求書送付", "日程調整");
+        assertThat(top.get(0).estimate()).isGreaterThanOrEqualTo(50);
+        assertThat(sketch.total()).isEqualTo(290);
+    }
+
+    @Test
+    void mergeAddsCountsAndKeepsCandidatesFromBothSides() {
+        TopKSketch left = new TopKSketch();
+        TopKSketch right = new TopKSketch();
+        left.add("見積依頼", 5);
+        left.add("日程調整", 4);
+        right.add("見積依頼", 7);
+        right.add("請求書送付", 9);
+
+        left.merge(right);
+
+        assertThat(left.estimate("見積依頼")).isGreaterThanOrEqualTo(12);
+        assertThat(left.total()).isEqualTo(25);
+        assertThat(left.top(3)).extracting(TopKSketch.Entry::key).containsExactly("見積依頼", "請求書送付", "日程調整");
+    }
+
+    @Test
+    void mergeOfManyBucketsMatchesSingleSketch() {
+        TopKSketch merged = new TopKSketch();
+        TopKSketch single = new TopKSketch();
+        for (int day = 0; day < 7; day++) {
+            TopKSketch bucket = new TopKSketch();
+            for (int i = 0; i < 20; i++) {
+                String subject = "件名 " + (i % (day + 3));
+                bucket.add(subject, 1);
+                single.add(subject, 1);
+            }
+            merged.merge(bucket);
+        }
+
+        assertThat(merged.total()).isEqualTo(single.total());
+        for (int i = 0; i < 9; i++) {
+            assertThat(merged.estimate("件名 " + i)).isEqualTo(single.estimate("件名 " + i));
+        }
+        assertThat(merged.top(5)).isEqualTo(single.top(5));
+    }
+
+    @Test
+    void bytesRoundTripKeepsCountsAndCandidates() {
+        TopKSketch sketch = new TopKSketch();
+        sketch.add("見積依頼", 3);
+        sketch.add("日程調整", 2);
+
+        TopKSketch copy = TopKSketch.fromBytes(sketch.toBytes());
+
+        assertThat(copy.total()).isEqualTo(5);
+        assertThat(copy.top(2)).isEqualTo(sketch.top(2));
+    }
+}
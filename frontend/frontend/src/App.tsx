@@ -330,7 +330,13 @@ function App() {
       const messageTail = slackMessage ? `\n\n${slackMessage}` : ''
       const payload = { message: `${result.subject}\n\n${result.body}${messageTail}` , channelId: slackChannel || 'general' }
       const r = await sendSlack(payload)
-      setSlackStatus(r.status === 'ok' ? `送信成功 (ts: ${r.ts})` : `失敗: ${r.errorMessage}`)
+      setSlackStatus(
+        r.status === 'queued'
+          ? `送信受付 (id: ${r.messageId})`
+          : r.status === 'ok'
+            ? `送信成功 (ts: ${r.ts})`
+            : `失敗: ${r.errorMessage}`,
+      )
     } catch (e) {
       setError(e instanceof Error ? e.message : String(e))
     }
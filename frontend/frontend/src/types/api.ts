@@ -41,7 +41,8 @@ export type SlackIntegrationRequest = {
 }
 
 export type SlackIntegrationResponse = {
-  status: 'ok' | 'error'
+  status: 'queued' | 'ok' | 'error'
+  messageId?: string
   ts?: string
   errorMessage?: string
 }